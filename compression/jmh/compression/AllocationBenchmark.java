@@ -0,0 +1,79 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures CompressedTable's updateInfo and getInfo on a table with a run at
+ * every fourth cell of each row, with and without the list's node pool. The
+ * churn benchmark sets a random cell to a new value and back again, so every
+ * update splits a run and the next one merges it back, which is where the
+ * node pool takes effect. The bytes allocated per operation are what matter
+ * here, so run it with JMH's gc profiler and read gc.alloc.rate.norm:
+ *
+ * Run with: gradle jmh -Pjmh="AllocationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationBenchmark {
+	private static final int CELLS = 4096; // random cells visited in turn; a power of two
+
+	@Param({ "300" })
+	public int size;
+
+	@Param({ "0", "" + CompressedTable.NODE_POOL })
+	public int pool; // removed nodes the list keeps for reuse
+
+	private CompressedTable<String> table;
+	private final int[] rows = new int[CELLS];
+	private final int[] cols = new int[CELLS];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void buildTable() {
+		table = new CompressedTable<String>(size, size, "x");
+		table.tableInfo.setNodePool(pool);
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c += 4) {
+				table.updateInfo(r, c, "b");
+			}
+		}
+		Random rand = new Random(23);
+		for (int i = 0; i < CELLS; i++) {
+			rows[i] = rand.nextInt(size);
+			cols[i] = 4 * rand.nextInt(size / 4) + 1 + rand.nextInt(3); // between the "b" cells, so churn restores the table
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void churn() {
+		int i = next++ & (CELLS - 1);
+		table.updateInfo(rows[i], cols[i], "a");
+		table.updateInfo(rows[i], cols[i], "x");
+	}
+
+	@Benchmark
+	public String getInfo() {
+		int i = next++ & (CELLS - 1);
+		return table.getInfo(rows[i], cols[i]);
+	}
+}
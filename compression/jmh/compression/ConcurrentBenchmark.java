@@ -0,0 +1,157 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures getInfo and updateInfo throughput on a striped table shared by all
+ * the benchmark's threads, for ConcurrentCompressedTable (one lock),
+ * StripedTable (a lock per stripe of rows) and a CompressedTable whose calls
+ * are synchronized on the table. The read and write benchmarks run every
+ * thread on the one operation; readWhileWriting runs readers alongside one
+ * writer updating random cells throughout. Each write sets a cell to a value
+ * it does not hold and then restores it, so every update changes the table.
+ * Results are operations per microsecond summed over the threads, so a score
+ * that rises as threads are added means the operation scales.
+ *
+ * Choose the number of threads with -t, or readers and writers with -tg:
+ *
+ * for t in 1 2 4 8 16 32; do gradle jmh -Pjmh="ConcurrentBenchmark.read -t $t"; done
+ * for t in 1 2 4 8 16 32; do gradle jmh -Pjmh="ConcurrentBenchmark.readWhileWriting -tg $t,1"; done
+ *
+ * Results only mean something on a machine with that many cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+	private static final int CELLS = 4096; // random cells visited in turn by each thread; a power of two
+
+	@Param({ "Concurrent", "Striped", "Synchronized" })
+	public String engine;
+
+	@Param({ "1000" })
+	public int size;
+
+	private TwoDTable<String> table;
+	private Object monitor; // held around every call, or null if the table needs no lock
+	private final AtomicInteger seeds = new AtomicInteger();
+
+	/**
+	 * Random cells for one thread, each thread with its own fixed seed.
+	 */
+	@State(Scope.Thread)
+	public static class Cells {
+		final int[] rows = new int[CELLS];
+		final int[] cols = new int[CELLS];
+		final String[] originals = new String[CELLS]; // value of each cell in the built table
+		final String[] changes = new String[CELLS]; // a different value for each cell
+		int next;
+
+		@Setup(Level.Trial)
+		public void choose(ConcurrentBenchmark benchmark) {
+			Random rand = new Random(benchmark.seeds.getAndIncrement());
+			for (int i = 0; i < CELLS; i++) {
+				rows[i] = rand.nextInt(benchmark.size);
+				cols[i] = rand.nextInt(benchmark.size);
+			}
+		}
+
+		@Setup(Level.Iteration)
+		public void readOriginals(ConcurrentBenchmark benchmark) {
+			for (int i = 0; i < CELLS; i++) {
+				originals[i] = benchmark.getInfo(rows[i], cols[i]);
+				changes[i] = originals[i].equals("a") ? "b" : "a";
+			}
+		}
+
+		int nextCell() {
+			return next++ & (CELLS - 1);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildTable() {
+		table = Engines.build(engine.equals("Synchronized") ? "CompressedTable" : engine, size, size, "striped");
+		monitor = engine.equals("Synchronized") ? table : null;
+	}
+
+	private String getInfo(int row, int col) {
+		if (monitor == null) {
+			return table.getInfo(row, col);
+		}
+		synchronized (monitor) {
+			return table.getInfo(row, col);
+		}
+	}
+
+	private void updateInfo(int row, int col, String value) {
+		if (monitor == null) {
+			table.updateInfo(row, col, value);
+		} else {
+			synchronized (monitor) {
+				table.updateInfo(row, col, value);
+			}
+		}
+	}
+
+	private String getInfo(Cells cells) {
+		int i = cells.nextCell();
+		return getInfo(cells.rows[i], cells.cols[i]);
+	}
+
+	/**
+	 * Sets the next cell to a value it does not hold, then restores it.
+	 */
+	private void churn(Cells cells) {
+		int i = cells.nextCell();
+		updateInfo(cells.rows[i], cells.cols[i], cells.changes[i]);
+		updateInfo(cells.rows[i], cells.cols[i], cells.originals[i]);
+	}
+
+	@Benchmark
+	public String read(Cells cells) {
+		return getInfo(cells);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void write(Cells cells) {
+		churn(cells);
+	}
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(3)
+	public String reader(Cells cells) {
+		return getInfo(cells);
+	}
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(1)
+	@OperationsPerInvocation(2)
+	public void writer(Cells cells) {
+		churn(cells);
+	}
+}
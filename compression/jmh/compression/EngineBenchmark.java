@@ -0,0 +1,91 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the linked list CompressedTable against the array backed
+ * ArrayRunTable (and the other engines) on random updates and lookups. Each
+ * iteration starts from a table already holding updates random updates, so
+ * the engines are compared on a table with many short runs rather than on an
+ * empty one. updateInfo sets a cell to a value it does not hold and then
+ * restores it, so every update changes the table.
+ *
+ * Run with: gradle jmh -Pjmh="EngineBenchmark -p engine=CompressedTable,ArrayRunTable"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+	private static final String[] VALUES = { "x", "a", "b" };
+	private static final int CELLS = 4096; // random cells visited in turn; a power of two
+
+	@Param({ "CompressedTable", "Indexed", "Packed", "ArrayRunTable", "Persistent", "OffHeap", "TreeMap" })
+	public String engine;
+
+	@Param({ "300" })
+	public int size;
+
+	@Param({ "20000" })
+	public int updates;
+
+	private TwoDTable<String> table;
+	private final int[] rows = new int[CELLS];
+	private final int[] cols = new int[CELLS];
+	private final String[] originals = new String[CELLS]; // value of each cell in the built table
+	private final String[] changes = new String[CELLS]; // a different value for each cell
+	private int next;
+
+	@Setup(Level.Trial)
+	public void chooseCells() {
+		Random rand = new Random(6);
+		for (int i = 0; i < CELLS; i++) {
+			rows[i] = rand.nextInt(size);
+			cols[i] = rand.nextInt(size);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildTable() {
+		table = Engines.create(engine, size, size);
+		Random rand = new Random(5);
+		for (int i = 0; i < updates; i++) {
+			table.updateInfo(rand.nextInt(size), rand.nextInt(size), VALUES[rand.nextInt(VALUES.length)]);
+		}
+		for (int i = 0; i < CELLS; i++) {
+			originals[i] = table.getInfo(rows[i], cols[i]);
+			changes[i] = originals[i].equals("a") ? "b" : "a";
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void updateInfo() {
+		int i = next++ & (CELLS - 1);
+		table.updateInfo(rows[i], cols[i], changes[i]);
+		table.updateInfo(rows[i], cols[i], originals[i]);
+	}
+
+	@Benchmark
+	public String getInfo() {
+		int i = next++ & (CELLS - 1);
+		return table.getInfo(rows[i], cols[i]);
+	}
+}
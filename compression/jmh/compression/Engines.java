@@ -0,0 +1,69 @@
+package compression;
+
+import java.util.Random;
+
+/**
+ * Builds the tables the benchmarks run on: an empty table of any engine by
+ * name, or one filled with one of three run densities:
+ *
+ * uniform - every cell holds the same value (a single run)
+ * speckle - about one cell in a thousand holds a different value
+ * striped - every row is cut into 16 vertical stripes of alternating values
+ *
+ * Engines: CompressedTable, Indexed (CompressedTable with its skip list
+ * index), Packed, ArrayRunTable, Concurrent, Striped, Persistent, OffHeap and
+ * TreeMap (NavigableMapTable).
+ */
+class Engines {
+
+	/**
+	 * @return an empty rows x cols table of the named engine, filled with "x"
+	 */
+	static TwoDTable<String> create(String engine, int rows, int cols) {
+		if (engine.equals("Indexed")) {
+			return new CompressedTable<String>(rows, cols, "x", true);
+		} else if (engine.equals("Packed")) {
+			return new PackedCompressedTable<String>(rows, cols, "x");
+		} else if (engine.equals("ArrayRunTable")) {
+			return new ArrayRunTable<String>(rows, cols, "x");
+		} else if (engine.equals("CompressedTable")) {
+			return new CompressedTable<String>(rows, cols, "x");
+		} else if (engine.equals("Concurrent")) {
+			return new ConcurrentCompressedTable<String>(rows, cols, "x");
+		} else if (engine.equals("Striped")) {
+			return new StripedTable<String>(rows, cols, "x");
+		} else if (engine.equals("Persistent")) {
+			return new PersistentTable<String>(rows, cols, "x");
+		} else if (engine.equals("OffHeap")) {
+			return new OffHeapTable<String>(rows, cols, "x");
+		} else if (engine.equals("TreeMap")) {
+			return new NavigableMapTable<String>(rows, cols, "x");
+		}
+		throw new IllegalArgumentException("Unknown engine " + engine);
+	}
+
+	/**
+	 * @return a rows x cols table of the named engine filled with the given
+	 *         density, written in row order (stripes with one fillRect each) so
+	 *         building is cheap for every engine
+	 */
+	static TwoDTable<String> build(String engine, int rows, int cols, String density) {
+		TwoDTable<String> table = create(engine, rows, cols);
+		if (density.equals("speckle")) {
+			Random rand = new Random(1);
+			long cells = (long) rows * cols;
+			long gap = 1000;
+			for (long pos = rand.nextInt((int) gap); pos < cells; pos += 1 + rand.nextInt((int) (2 * gap))) {
+				table.updateInfo((int) (pos / cols), (int) (pos % cols), "a");
+			}
+		} else if (density.equals("striped")) {
+			int width = Math.max(1, cols / 16);
+			for (int c = width; c < cols; c += 2 * width) {
+				table.fillRect(0, c, rows - 1, Math.min(cols, c + width) - 1, "b");
+			}
+		} else if (!density.equals("uniform")) {
+			throw new IllegalArgumentException("Unknown density " + density);
+		}
+		return table;
+	}
+}
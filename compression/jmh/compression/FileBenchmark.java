@@ -0,0 +1,127 @@
+package compression;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a table file, opening it with TableFile.open, reading cells
+ * from the mapped table and the first update of a copy on write table (which
+ * copies it into memory), against the alternative of loading the same
+ * runs into a fresh CompressedTable (one fillRect per run of each row) and
+ * reading cells from that. Tables default to 10000x10000 (100M cells). The
+ * whole-table operations are timed per table and the lookups per getInfo.
+ *
+ * Run with: gradle jmh -Pjmh="FileBenchmark -p density=striped"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FileBenchmark {
+	private static final int CELLS = 4096; // random cells visited in turn; a power of two
+
+	@Param({ "10000" })
+	public int size;
+
+	@Param({ "uniform", "speckle", "striped" })
+	public String density;
+
+	private TwoDTable<String> source;
+	private Path file; // source written by TableFile
+	private Path scratch; // rewritten by the write benchmark
+	private MappedTable mapped;
+	private CompressedTable<String> loaded;
+	private final int[] rows = new int[CELLS];
+	private final int[] cols = new int[CELLS];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void writeFile() throws IOException {
+		source = Engines.build("ArrayRunTable", size, size, density);
+		file = Files.createTempFile("bench", ".ctb");
+		scratch = Files.createTempFile("bench", ".ctb");
+		TableFile.write(source, file);
+		mapped = TableFile.open(file);
+		loaded = load();
+		Random rand = new Random(3);
+		for (int i = 0; i < CELLS; i++) {
+			rows[i] = rand.nextInt(size);
+			cols[i] = rand.nextInt(size);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() throws IOException {
+		mapped = null;
+		Files.delete(file);
+		Files.delete(scratch);
+	}
+
+	/**
+	 * @return a CompressedTable holding source, built with one fillRect per run
+	 */
+	private CompressedTable<String> load() {
+		CompressedTable<String> table = new CompressedTable<String>(size, size, "x");
+		for (RunCursor<String> run : source.rowRuns(0, size - 1)) {
+			table.fillRect(run.getRow(), run.getStartCol(), run.getRow(), run.getStartCol() + run.getLength() - 1,
+					run.getValue());
+		}
+		return table;
+	}
+
+	@Benchmark
+	public Path write() throws IOException {
+		TableFile.write(source, scratch);
+		return scratch;
+	}
+
+	@Benchmark
+	public MappedTable open() throws IOException {
+		return TableFile.open(file);
+	}
+
+	@Benchmark
+	public TwoDTable<String> firstUpdate() throws IOException {
+		TwoDTable<String> table = TableFile.open(file, true);
+		table.updateInfo(size / 2, size / 2, "c");
+		return table;
+	}
+
+	@Benchmark
+	public CompressedTable<String> loadRuns() {
+		return load();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String getInfoMapped() {
+		int i = next++ & (CELLS - 1);
+		return mapped.getInfo(rows[i], cols[i]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String getInfoLoaded() {
+		int i = next++ & (CELLS - 1);
+		return loaded.getInfo(rows[i], cols[i]);
+	}
+}
@@ -0,0 +1,88 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares fillRect against filling the same rectangles with a loop of
+ * updateInfo calls, for each engine, on a striped table. Each invocation
+ * fills rects random rectangles of up to a quarter of the table's side, with
+ * alternating values, so the score is the time for the whole set. Every
+ * invocation is its own batch and starts from a freshly built table.
+ *
+ * Run with: gradle jmh -Pjmh="FillBenchmark -p engine=CompressedTable,ArrayRunTable"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FillBenchmark {
+
+	@Param({ "CompressedTable", "Indexed", "Packed", "ArrayRunTable" })
+	public String engine;
+
+	@Param({ "400" })
+	public int size;
+
+	@Param({ "50" })
+	public int rects;
+
+	private TwoDTable<String> table;
+	private int[] row0s, col0s, row1s, col1s; // corners of each rectangle
+
+	@Setup(Level.Trial)
+	public void chooseRects() {
+		row0s = new int[rects];
+		col0s = new int[rects];
+		row1s = new int[rects];
+		col1s = new int[rects];
+		Random rand = new Random(4);
+		for (int i = 0; i < rects; i++) {
+			row0s[i] = rand.nextInt(size);
+			col0s[i] = rand.nextInt(size);
+			row1s[i] = Math.min(size - 1, row0s[i] + rand.nextInt(1 + size / 4));
+			col1s[i] = Math.min(size - 1, col0s[i] + rand.nextInt(1 + size / 4));
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildTable() {
+		table = Engines.build(engine, size, size, "striped");
+	}
+
+	@Benchmark
+	public TwoDTable<String> fillRect() {
+		for (int i = 0; i < rects; i++) {
+			table.fillRect(row0s[i], col0s[i], row1s[i], col1s[i], (i % 2 == 0) ? "a" : "b");
+		}
+		return table;
+	}
+
+	@Benchmark
+	public TwoDTable<String> updateInfoLoop() {
+		for (int i = 0; i < rects; i++) {
+			String value = (i % 2 == 0) ? "a" : "b";
+			for (int r = row0s[i]; r <= row1s[i]; r++) {
+				for (int c = col0s[i]; c <= col1s[i]; c++) {
+					table.updateInfo(r, c, value);
+				}
+			}
+		}
+		return table;
+	}
+}
@@ -0,0 +1,145 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap taken by tables of many runs, and the garbage collection
+ * time spent while building and then updating them, for the linked list
+ * CompressedTable, the array backed ArrayRunTable and the off heap
+ * OffHeapTable. Each table is a checkerboard of "a" and "x" (one run per cell)
+ * built row by row; update then applies random updates to it.
+ *
+ * Every invocation is its own batch. build reports the heap and direct memory
+ * the finished table holds as the heapBytes and offHeapBytes counters; the
+ * garbage collection time comes from JMH's gc profiler (gc.time):
+ *
+ * Run with: gradle jmh -Pjmh="HeapBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class HeapBenchmark {
+
+	@Param({ "CompressedTable", "ArrayRunTable", "OffHeap" })
+	public String engine;
+
+	@Param({ "2000" })
+	public int size;
+
+	@Param({ "200000" })
+	public int updates;
+
+	private TwoDTable<String> table;
+	private long heapBefore; // heap in use before the table was built
+
+	/**
+	 * Memory held by the table built in the iteration, reported alongside the
+	 * time.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long heapBytes;
+		public long offHeapBytes;
+
+		@TearDown(Level.Iteration)
+		public void measure(HeapBenchmark benchmark) {
+			heapBytes = usedHeap() - benchmark.heapBefore;
+			offHeapBytes = (benchmark.table instanceof OffHeapTable)
+					? ((OffHeapTable<String>) benchmark.table).offHeapBytes() : 0;
+		}
+	}
+
+	/**
+	 * @return bytes of heap in use after collecting garbage
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * @return a checkerboard table of the engine, one run per cell
+	 */
+	private TwoDTable<String> checkerboard() {
+		TwoDTable<String> board = Engines.create(engine, size, size);
+		for (int r = 0; r < size; r++) {
+			for (int c = r % 2; c < size; c += 2) {
+				board.updateInfo(r, c, "a");
+			}
+		}
+		return board;
+	}
+
+	@Setup(Level.Iteration)
+	public void clearTable() {
+		closeTable();
+		heapBefore = usedHeap();
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeTable() {
+		if (table instanceof OffHeapTable) {
+			((OffHeapTable<String>) table).close();
+		}
+		table = null;
+	}
+
+	@Benchmark
+	public TwoDTable<String> build(Footprint footprint) {
+		table = checkerboard();
+		return table;
+	}
+
+	/**
+	 * The checkerboard, built before every iteration of update.
+	 */
+	@State(Scope.Benchmark)
+	public static class Board {
+		TwoDTable<String> table;
+
+		@Setup(Level.Iteration)
+		public void build(HeapBenchmark benchmark) {
+			table = benchmark.checkerboard();
+		}
+
+		@TearDown(Level.Iteration)
+		public void close() {
+			if (table instanceof OffHeapTable) {
+				((OffHeapTable<String>) table).close();
+			}
+			table = null;
+		}
+	}
+
+	@Benchmark
+	public TwoDTable<String> update(Board board) {
+		Random rand = new Random(22);
+		for (int i = 0; i < updates; i++) {
+			board.table.updateInfo(rand.nextInt(size), rand.nextInt(size), rand.nextBoolean() ? "a" : "b");
+		}
+		return board.table;
+	}
+}
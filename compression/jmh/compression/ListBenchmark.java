@@ -0,0 +1,147 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the parts of CompressedTable the other engines do not have, over
+ * the same sizes and densities as TableBenchmark: addAfterCurrent and
+ * removeCurrent on the run list, and reading a whole column by getInfo and by
+ * colRuns (per column).
+ *
+ * Adding and removing change the list, so they run in single shot mode: each
+ * iteration is a batch of BATCH calls, one node each, spliced in after (or
+ * removed from after) a node in the middle of the list, and the list is
+ * reset between batches, outside the timing. Their score is the time per
+ * node.
+ *
+ * Run with: gradle jmh -Pjmh="ListBenchmark -p size=1000"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListBenchmark {
+	private static final int BATCH = 1000; // nodes added or removed per iteration
+
+	/**
+	 * A built CompressedTable and a node in the middle of its list.
+	 */
+	@State(Scope.Thread)
+	public static class Anchored {
+		@Param({ "10", "100", "1000", "10000" })
+		public int size;
+
+		@Param({ "uniform", "speckle", "striped" })
+		public String density;
+
+		CompressedTable<String> table;
+		CurDoublyLinkedList<Association<RowOrderedPosn, String>> list;
+		DoublyLinkedList<Association<RowOrderedPosn, String>>.Node anchor;
+		Association<RowOrderedPosn, String> filler;
+		ColumnRunCursor<String> columns; // reused by colByColRuns
+		int[] cols = new int[256];
+		int next;
+
+		@Setup(Level.Trial)
+		public void build() {
+			table = (CompressedTable<String>) Engines.build("CompressedTable", size, size, density);
+			list = table.tableInfo;
+			filler = new Association<RowOrderedPosn, String>(new RowOrderedPosn(0, 0, size, size), "x");
+			table.getInfo(size / 2, size / 2);
+			anchor = list.current;
+			columns = table.colRuns(0, 0);
+			Random rand = new Random(7);
+			for (int i = 0; i < cols.length; i++) {
+				cols[i] = rand.nextInt(size);
+			}
+		}
+
+		/**
+		 * Removes the filler nodes added after anchor.
+		 */
+		void removeFillers() {
+			while (anchor.next != null && anchor.next.item == filler) {
+				list.moveTo(anchor.next);
+				list.removeCurrent();
+			}
+		}
+	}
+
+	/**
+	 * Anchored with current on the anchor and no fillers after it.
+	 */
+	public static class Adding extends Anchored {
+		@Setup(Level.Iteration)
+		public void clear() {
+			removeFillers();
+			list.moveTo(anchor);
+		}
+	}
+
+	/**
+	 * Anchored with BATCH fillers after the anchor and current on the first.
+	 */
+	public static class Removing extends Anchored {
+		@Setup(Level.Iteration)
+		public void fill() {
+			removeFillers();
+			list.moveTo(anchor);
+			for (int i = 0; i < BATCH; i++) {
+				list.addAfterCurrent(filler);
+			}
+			list.moveTo(anchor.next);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	@OperationsPerInvocation(BATCH) // a single shot divides the batch's time by this
+	public void addAfterCurrent(Adding state) {
+		state.list.addAfterCurrent(state.filler);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 20, batchSize = BATCH)
+	@Measurement(iterations = 50, batchSize = BATCH)
+	@OperationsPerInvocation(BATCH) // a single shot divides the batch's time by this
+	public void removeCurrent(Removing state) {
+		state.list.removeCurrent();
+	}
+
+	@Benchmark
+	public void colByGetInfo(Anchored state, Blackhole sink) {
+		int col = state.cols[state.next++ & (state.cols.length - 1)];
+		for (int r = 0; r < state.size; r++) {
+			sink.consume(state.table.getInfo(r, col));
+		}
+	}
+
+	@Benchmark
+	public void colByColRuns(Anchored state, Blackhole sink) {
+		int col = state.cols[state.next++ & (state.cols.length - 1)];
+		for (ColumnRunCursor<String> run : state.columns.reset(col, col)) {
+			sink.consume(run.getLength());
+			sink.consume(run.getValue());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package compression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sustained updateInfo throughput on a LoggedTable for group commits
+ * of 1, 100 and 10000 records (one fsync per group), against the same updates
+ * on a CompressedTable with no log, and the time to reopen a table by
+ * replaying a log of 20000 updates. Each update call sets a cell to a
+ * value it does not hold and then restores it. Every iteration starts a new
+ * table in an empty directory, never compacted, and closing it at the end of
+ * the iteration commits the last group.
+ *
+ * Run with: gradle jmh -Pjmh="LogBenchmark -p commit=none,1,100,10000"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+	private static final int CELLS = 4096; // random cells visited in turn; a power of two
+
+	/**
+	 * A table opened afresh for every iteration, logged or not.
+	 */
+	@State(Scope.Benchmark)
+	public static class Log {
+		@Param({ "1000" })
+		public int size;
+
+		@Param({ "none", "1", "100", "10000" })
+		public String commit; // records per group commit, or none for a CompressedTable with no log
+
+		Path dir;
+		TwoDTable<String> table;
+		final int[] rows = new int[CELLS];
+		final int[] cols = new int[CELLS];
+		int next;
+
+		@Setup(Level.Trial)
+		public void chooseCells() throws IOException {
+			dir = Files.createTempDirectory("logbench");
+			Random rand = new Random(21);
+			for (int i = 0; i < CELLS; i++) {
+				rows[i] = rand.nextInt(size);
+				cols[i] = rand.nextInt(size);
+			}
+		}
+
+		@Setup(Level.Iteration)
+		public void openTable() throws IOException {
+			clear(dir);
+			if (commit.equals("none")) {
+				table = new CompressedTable<String>(size, size, "x");
+			} else {
+				table = LoggedTable.open(dir, size, size, "x", Integer.parseInt(commit), Long.MAX_VALUE);
+			}
+		}
+
+		@TearDown(Level.Iteration)
+		public void closeTable() throws IOException {
+			if (table instanceof LoggedTable) {
+				((LoggedTable) table).close();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void deleteDir() throws IOException {
+			clear(dir);
+			Files.delete(dir);
+		}
+	}
+
+	/**
+	 * A table directory whose log holds updates records, written once.
+	 */
+	@State(Scope.Benchmark)
+	public static class Recovery {
+		@Param({ "1000" })
+		public int size;
+
+		@Param({ "20000" })
+		public int updates;
+
+		Path dir;
+
+		@Setup(Level.Trial)
+		public void writeLog() throws IOException {
+			dir = Files.createTempDirectory("logbench");
+			try (LoggedTable table = LoggedTable.open(dir, size, size, "x", 10000, Long.MAX_VALUE)) {
+				Random rand = new Random(21);
+				for (int i = 0; i < updates; i++) {
+					table.updateInfo(rand.nextInt(size), rand.nextInt(size), rand.nextBoolean() ? "a" : "b");
+				}
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void deleteDir() throws IOException {
+			clear(dir);
+			Files.delete(dir);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void updateInfo(Log log) {
+		int i = log.next++ & (CELLS - 1);
+		log.table.updateInfo(log.rows[i], log.cols[i], "a");
+		log.table.updateInfo(log.rows[i], log.cols[i], "x");
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public String recover(Recovery recovery) throws IOException {
+		try (LoggedTable table = LoggedTable.open(recovery.dir, recovery.size, recovery.size, "x", 1, Long.MAX_VALUE)) {
+			return table.getInfo(0, 0);
+		}
+	}
+
+	/**
+	 * Deletes the files of a logged table.
+	 */
+	private static void clear(Path dir) {
+		try {
+			Files.deleteIfExists(dir.resolve(LoggedTable.LOG));
+			Files.deleteIfExists(dir.resolve(LoggedTable.SNAPSHOT));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
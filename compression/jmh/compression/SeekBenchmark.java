@@ -0,0 +1,111 @@
+package compression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cursor-relative find in CompressedTable against rescanning from
+ * the head of the list and against the skip list indexed table, for
+ * sequential, random and localized access patterns. The table has roughly
+ * one run every few cells, so find has something to walk over. updateInfo
+ * sets a cell to a value it does not hold and then restores it, so every
+ * update changes the table; the restore finds the same cell again.
+ *
+ * Run with: gradle jmh -Pjmh="SeekBenchmark -p pattern=localized"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeekBenchmark {
+	private static final int CELLS = 16384; // cells visited in turn; a power of two
+
+	@Param({ "head", "cursor", "indexed" })
+	public String seek;
+
+	@Param({ "sequential", "random", "localized" })
+	public String pattern;
+
+	@Param({ "200" })
+	public int size;
+
+	private CompressedTable<String> table;
+	private final int[] rows = new int[CELLS];
+	private final int[] cols = new int[CELLS];
+	private final String[] originals = new String[CELLS]; // value of each cell in the built table
+	private final String[] changes = new String[CELLS]; // a different value for each cell
+	private int next;
+
+	/**
+	 * Chooses the cells for the access pattern: the table in row order, uniformly
+	 * random cells, or a brush jittering around a slowly moving point.
+	 */
+	@Setup(Level.Trial)
+	public void chooseCells() {
+		Random rand = new Random(42);
+		long cells = (long) size * size;
+		long brush = 0;
+		for (int i = 0; i < CELLS; i++) {
+			long pos;
+			if (pattern.equals("sequential")) {
+				pos = i % cells;
+			} else if (pattern.equals("random")) {
+				pos = (long) (rand.nextDouble() * cells);
+			} else if (pattern.equals("localized")) {
+				brush = (brush + 1 + rand.nextInt(3)) % cells;
+				pos = Math.min(cells - 1, Math.max(0, brush + rand.nextInt(2 * size + 1) - size));
+			} else {
+				throw new IllegalArgumentException("Unknown pattern " + pattern);
+			}
+			rows[i] = (int) (pos / size);
+			cols[i] = (int) (pos % size);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildTable() {
+		table = new CompressedTable<String>(size, size, "x", seek.equals("indexed"));
+		Random rand = new Random(17);
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c += 1 + rand.nextInt(8)) {
+				table.updateInfo(r, c, rand.nextBoolean() ? "a" : "b");
+			}
+		}
+		for (int i = 0; i < CELLS; i++) {
+			originals[i] = table.getInfo(rows[i], cols[i]);
+			changes[i] = originals[i].equals("a") ? "b" : "a";
+		}
+		table.setCursorSeek(!seek.equals("head"));
+		next = 0;
+	}
+
+	@Benchmark
+	public String getInfo() {
+		int i = next++ & (CELLS - 1);
+		return table.getInfo(rows[i], cols[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void updateInfo() {
+		int i = next++ & (CELLS - 1);
+		table.updateInfo(rows[i], cols[i], changes[i]);
+		table.updateInfo(rows[i], cols[i], originals[i]);
+	}
+}
@@ -0,0 +1,186 @@
+package compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the TwoDTable operations of each engine over square tables from
+ * 10x10 to 10000x10000 filled with each of the densities built by Engines:
+ * updateInfo, applyUpdates (per update), getInfo, reading a whole row by
+ * getInfo and by rowRuns (per row), entireTable as a String and streamed to a
+ * discarding Appendable, and dumping the runs by toString and by
+ * TableExport.writeRuns. The table is rebuilt before every iteration.
+ *
+ * The update benchmarks set each cell to a value it does not hold and then
+ * restore it, as AllocationBenchmark.churn does, so every update changes the
+ * table and the contents stay the same from one call to the next.
+ *
+ * Run with: gradle jmh -Pjmh="TableBenchmark -p engine=CompressedTable,ArrayRunTable -p size=10,1000"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TableBenchmark {
+	private static final int CELLS = 4096; // random cells visited in turn; a power of two
+	private static final int BATCH = 1000; // updates per applyUpdates call
+
+	@Param({ "CompressedTable", "Indexed", "Packed", "ArrayRunTable" })
+	public String engine;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int size;
+
+	@Param({ "uniform", "speckle", "striped" })
+	public String density;
+
+	private TwoDTable<String> table;
+	private RunCursor<String> runs; // reused by rowByRowRuns
+	private final int[] rows = new int[CELLS];
+	private final int[] cols = new int[CELLS];
+	private final String[] originals = new String[CELLS]; // value of each cell in the built table
+	private final String[] changes = new String[CELLS]; // a different value for each cell
+	private final List<CellUpdate<String>> batch = new ArrayList<CellUpdate<String>>();
+	private final List<CellUpdate<String>> restore = new ArrayList<CellUpdate<String>>(); // undoes batch
+	private int next; // index of the next random cell
+
+	private long written; // characters or bytes written to the discarding outputs
+	private final Appendable discardText = new Appendable() {
+		public Appendable append(CharSequence csq) {
+			written += csq.length();
+			return this;
+		}
+
+		public Appendable append(CharSequence csq, int start, int end) {
+			written += end - start;
+			return this;
+		}
+
+		public Appendable append(char c) {
+			written++;
+			return this;
+		}
+	};
+	private final OutputStream discardBytes = new OutputStream() {
+		public void write(int b) {
+			written++;
+		}
+
+		public void write(byte[] b, int off, int len) {
+			written += len;
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void chooseCells() {
+		Random rand = new Random(2);
+		for (int i = 0; i < CELLS; i++) {
+			rows[i] = rand.nextInt(size);
+			cols[i] = rand.nextInt(size);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void buildTable() {
+		table = Engines.build(engine, size, size, density);
+		runs = table.rowRuns(0);
+		batch.clear();
+		restore.clear();
+		for (int i = 0; i < CELLS; i++) {
+			originals[i] = table.getInfo(rows[i], cols[i]);
+			changes[i] = originals[i].equals("a") ? "b" : "a";
+			if (i < BATCH) {
+				batch.add(new CellUpdate<String>(rows[i], cols[i], changes[i]));
+				restore.add(new CellUpdate<String>(rows[i], cols[i], originals[i]));
+			}
+		}
+	}
+
+	/**
+	 * @return index of the next random cell
+	 */
+	private int nextCell() {
+		return next++ & (CELLS - 1);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public void updateInfo() {
+		int i = nextCell();
+		table.updateInfo(rows[i], cols[i], changes[i]);
+		table.updateInfo(rows[i], cols[i], originals[i]);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2 * BATCH)
+	public void applyUpdates() {
+		table.applyUpdates(batch);
+		table.applyUpdates(restore);
+	}
+
+	@Benchmark
+	public String getInfo() {
+		int i = nextCell();
+		return table.getInfo(rows[i], cols[i]);
+	}
+
+	@Benchmark
+	public void rowByGetInfo(Blackhole sink) {
+		int row = rows[nextCell()];
+		for (int c = 0; c < size; c++) {
+			sink.consume(table.getInfo(row, c));
+		}
+	}
+
+	@Benchmark
+	public void rowByRowRuns(Blackhole sink) {
+		int row = rows[nextCell()];
+		for (RunCursor<String> run : runs.reset(row, row)) {
+			sink.consume(run.getLength());
+			sink.consume(run.getValue());
+		}
+	}
+
+	@Benchmark
+	public String entireTable() {
+		return table.entireTable();
+	}
+
+	@Benchmark
+	public long entireTableStreamed() throws IOException {
+		table.entireTable(discardText);
+		return written;
+	}
+
+	@Benchmark
+	public String runsByToString() {
+		return table.toString();
+	}
+
+	@Benchmark
+	public long runsByWriteRuns() throws IOException {
+		TableExport.writeRuns(table, discardBytes);
+		return written;
+	}
+}
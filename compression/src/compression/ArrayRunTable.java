@@ -0,0 +1,74 @@
+/**
+ * Class representing a compressed 2-dimensional table whose runs are kept in
+ * parallel arrays rather than a linked list. starts holds the offset
+ * (row * numCols + col) at which each run begins, in increasing order, and
+ * codes holds the dictionary code of each run's value; GapBufferTable uses
+ * the two arrays as a gap buffer.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+package compression;
+
+class ArrayRunTable<ValueType> extends GapBufferTable<ValueType> {
+
+	private long[] starts; // start offset of each run
+	private int[] codes; // dictionary code of the value of each run
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public ArrayRunTable(int rows, int cols, ValueType defaultValue) {
+		super(rows, cols);
+		starts = new long[INITIAL_CAPACITY];
+		codes = new int[INITIAL_CAPACITY];
+		init(defaultValue);
+	}
+
+	protected int capacity() {
+		return starts.length;
+	}
+
+	protected long start(int slot) {
+		return starts[slot];
+	}
+
+	protected int code(int slot) {
+		return codes[slot];
+	}
+
+	protected void set(int slot, long start, int code) {
+		starts[slot] = start;
+		codes[slot] = code;
+	}
+
+	protected void setCode(int slot, int code) {
+		codes[slot] = code;
+	}
+
+	protected void copySlots(int from, int to, int count) {
+		System.arraycopy(starts, from, starts, to, count);
+		System.arraycopy(codes, from, codes, to, count);
+	}
+
+	/**
+	 * Doubles the capacity of the arrays.
+	 */
+	protected int grow(int head, int tail) {
+		int oldCapacity = starts.length;
+		int newCapacity = oldCapacity * 2;
+		long[] newStarts = new long[newCapacity];
+		int[] newCodes = new int[newCapacity];
+		System.arraycopy(starts, 0, newStarts, 0, head);
+		System.arraycopy(codes, 0, newCodes, 0, head);
+		System.arraycopy(starts, oldCapacity - tail, newStarts, newCapacity - tail, tail);
+		System.arraycopy(codes, oldCapacity - tail, newCodes, newCapacity - tail, tail);
+		starts = newStarts;
+		codes = newCodes;
+		return newCapacity;
+	}
+}
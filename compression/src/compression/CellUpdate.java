@@ -0,0 +1,48 @@
+package compression;
+
+// A new value for one cell of a 2-dimensional table, for use in batches of updates
+
+class CellUpdate<ValueType> {
+	private int row, col; // row and column of cell to update
+	private ValueType value; // new value for the cell
+
+	/**
+	 * Constructor for an update setting (row,col) to value.
+	 * @param row	row number
+	 * @param col	column number
+	 * @param value new value for the cell
+	 */
+	public CellUpdate(int row, int col, ValueType value) {
+		this.row = row;
+		this.col = col;
+		this.value = value;
+	}
+
+	/**
+	 * @return row of cell to update
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return column of cell to update
+	 */
+	public int getCol() {
+		return col;
+	}
+
+	/**
+	 * @return new value for the cell
+	 */
+	public ValueType getValue() {
+		return value;
+	}
+
+	/**
+	 * @return description of update
+	 */
+	public String toString() {
+		return "Update: (" + row + "," + col + ")=" + value;
+	}
+}
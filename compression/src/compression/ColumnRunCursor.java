@@ -0,0 +1,105 @@
+package compression;
+
+import java.util.Iterator;
+
+/**
+ * Cursor over the runs of a range of columns in a table, one column at a time,
+ * from top to bottom. Each call to next() moves to the next run within a column
+ * and returns the cursor itself, whose getters then describe that run as (col,
+ * startRow, length, value).
+ * 
+ * It reads the rows of a transposed copy of the table, whose row-major order is
+ * the original table's column-major order. Like RunCursor it allocates nothing
+ * while iterating and can be pointed at other columns with reset.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class ColumnRunCursor<ValueType> implements Iterator<ColumnRunCursor<ValueType>>, Iterable<ColumnRunCursor<ValueType>> {
+	private final RunCursor<ValueType> runs; // row runs of the transposed table
+
+	/**
+	 * Constructor for a cursor reading the row runs of a transposed table.
+	 * 
+	 * @param runs
+	 *            cursor over the rows of the transposed table
+	 */
+	public ColumnRunCursor(RunCursor<ValueType> runs) {
+		this.runs = runs;
+	}
+
+	/**
+	 * Points the cursor at the runs of columns col0 through col1, inclusive.
+	 * Columns outside the table are ignored.
+	 * 
+	 * @param col0
+	 *            first column to report
+	 * @param col1
+	 *            last column to report
+	 * @return this cursor
+	 */
+	public ColumnRunCursor<ValueType> reset(int col0, int col1) {
+		runs.reset(col0, col1);
+		return this;
+	}
+
+	/**
+	 * @return whether there is another run in the range
+	 */
+	public boolean hasNext() {
+		return runs.hasNext();
+	}
+
+	/**
+	 * Moves to the next run in the range.
+	 * 
+	 * @pre: hasNext()
+	 * 
+	 * @return this cursor, now describing the run
+	 */
+	public ColumnRunCursor<ValueType> next() {
+		runs.next();
+		return this;
+	}
+
+	/**
+	 * @return this cursor, so it can be used in a for-each loop
+	 */
+	public Iterator<ColumnRunCursor<ValueType>> iterator() {
+		return this;
+	}
+
+	/**
+	 * @return column of the current run
+	 */
+	public int getCol() {
+		return runs.getRow();
+	}
+
+	/**
+	 * @return row at which the current run starts in its column
+	 */
+	public int getStartRow() {
+		return runs.getStartCol();
+	}
+
+	/**
+	 * @return number of cells in the current run within its column
+	 */
+	public int getLength() {
+		return runs.getLength();
+	}
+
+	/**
+	 * @return value of the current run
+	 */
+	public ValueType getValue() {
+		return runs.getValue();
+	}
+
+	/**
+	 * @return description of the current run
+	 */
+	public String toString() {
+		return "Run: (" + getStartRow() + "," + getCol() + ") x" + getLength() + "=" + getValue();
+	}
+}
@@ -9,6 +9,14 @@
  */
 package compression;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
 class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	
 	// List holding table entries - do not change
@@ -17,6 +25,27 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	protected int numRows;
 	protected int numCols ;
 	protected Association<RowOrderedPosn, ValueType> entry;
+	protected boolean cursorSeek = true; // start find from current or row start rather than the head
+	
+	// rowStarts[r] is the node whose entry covers (r,0), kept up to date as entries are added and removed
+	protected Object[] rowStarts;
+	
+	// Transposed copy of the table for column queries, built on the first one and then kept in step
+	protected CompressedTable<ValueType> columns;
+
+	// Single shared copy of each distinct value; entries only hold these, so values compare by identity
+	protected ValueDictionary<ValueType> dictionary = new ValueDictionary<ValueType>();
+
+	// Persistent copy of the table for snapshots, built on the first one and then kept in step
+	// until the last snapshot taken from it is no longer reachable
+	protected PersistentTable<ValueType> persistent;
+	protected WeakReference<PersistentTable<ValueType>> lastSnapshot;
+
+	// Removed list nodes kept for reuse; updateInfo removes at most two, fillRect a row's worth
+	static final int NODE_POOL = 64;
+
+	// Optional index from the offset of each entry's position to its node, null if not indexed
+	protected SkipListIndex<DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node> index;
 
 	/**
 	 * Constructor for table of size rows x cols, all of whose values are initially
@@ -27,41 +56,175 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	 * @param defaultValue: initial value of all entries in table
 	 */
 	public CompressedTable(int rows, int cols, ValueType defaultValue) {
+		this(rows, cols, defaultValue, false);
+	}
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue, optionally keeping a skip list index over the entries so
+	 * that lookups take O(log entries) rather than walking the list
+	 * 
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 * @param indexed: whether to maintain the skip list index
+	 */
+	public CompressedTable(int rows, int cols, ValueType defaultValue, boolean indexed) {
 		tableInfo = new CurDoublyLinkedList<Association<RowOrderedPosn, ValueType>>();
+		tableInfo.setNodePool(NODE_POOL);
 		numRows = rows;
 		numCols = cols;
 		RowOrderedPosn first = new RowOrderedPosn(0, 0, rows, cols);
-		Association<RowOrderedPosn,ValueType> def = new Association<RowOrderedPosn,ValueType> (first, defaultValue); 
+		Association<RowOrderedPosn,ValueType> def = 
+				new Association<RowOrderedPosn,ValueType> (first, dictionary.intern(defaultValue)); 
 		tableInfo.addFirst(def);
-		
+		rowStarts = new Object[rows];
+		Arrays.fill(rowStarts, tableInfo.current);
+		if (indexed) {
+			index = new SkipListIndex<DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node>();
+			index.put(first.offset(), tableInfo.current);
+		}
 	}
 
 	/**
-	 * Given a (x, y, rows, cols) RowOrderedPosn object, it searches for it in the
+	 * Builds a rows x cols table directly from its runs in row order. Each run is
+	 * appended to the list with addLast, without searching or merging, and the
+	 * row starts are then filled in with one pass over the nodes, so building
+	 * takes O(runs + rows) time.
+	 *
+	 * @pre: starts[0] == 0, starts is increasing and below rows * cols, and no
+	 *       two neighbouring runs have the same code
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param starts: offset (row * cols + col) of the first cell of each run
+	 * @param codes: code of each run's value in dictionary
+	 * @param numRuns: number of runs in starts and codes
+	 * @param dictionary: dictionary of the values, adopted by the table
+	 * @return the table
+	 */
+	static <ValueType> CompressedTable<ValueType> fromRuns(int rows, int cols, long[] starts, int[] codes, int numRuns,
+			ValueDictionary<ValueType> dictionary) {
+		CompressedTable<ValueType> table = new CompressedTable<ValueType>(rows, cols, dictionary.decode(codes[0]));
+		table.dictionary = dictionary;
+		for (int i = 1; i < numRuns; i++) {
+			table.tableInfo.addLast(
+					new Association<RowOrderedPosn, ValueType>(table.posn(starts[i]), dictionary.decode(codes[i])));
+		}
+		for (DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node = table.tableInfo.first; node != null; node = node.next) {
+			table.coverRows(node, node);
+		}
+		return table;
+	}
+
+	/**
+	 * Given the offset (row * numCols + col) of a cell, it searches for it in the
 	 * table which is represented as a doubly linked list with a current pointer. If
-	 * the table contains the (x,y) cell, it sets the current pointer to it.
+	 * the table contains an entry at the cell, it sets the current pointer to it.
 	 * Otherwise it sets it to the closest cell in the table which comes before that
 	 * entry.
 	 * 
 	 * e.g., if the table only contains a cell at (0,0) and you pass the cell (3,3)
 	 * it will set the current to (0,0).
+	 * 
+	 * When cursor seeking is enabled the search starts from the node covering
+	 * column 0 of the cell's row, or from current if that is between there and
+	 * the cell, so a lookup only walks over entries within its own row. Entries
+	 * are compared by offset, so a search allocates nothing.
 	 */
-	private void find(RowOrderedPosn findPos) {
-		tableInfo.first();
-		Association<RowOrderedPosn, ValueType> entry = tableInfo.currentValue();
-		RowOrderedPosn pos = entry.getKey();
-		while (!findPos.less(pos)) {
+	private void find(long offset) {
+		if (index != null) {
+			if (!coversCurrent(offset)) {
+				tableInfo.moveTo(index.floor(offset));
+			}
+			return;
+		}
+		if (!cursorSeek) {
+			tableInfo.first();
+		} else {
+			DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node start = rowStart((int) (offset / numCols));
+			DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node = tableInfo.current;
+			if (node == null || tableInfo.isOff() || offset < node.item.getKey().offset()
+					|| node.item.getKey().offset() < start.item.getKey().offset()) {
+				tableInfo.moveTo(start);
+			}
+		}
+		tableInfo.next();
+		while (!tableInfo.isOff() && tableInfo.currentValue().getKey().offset() <= offset) {
 			// search through list until pass elt looking for
 			tableInfo.next();
-			if (tableInfo.isOff()) {
-				break;
-			}
-			entry = tableInfo.currentValue();
-			pos = entry.getKey();
 		}
 		tableInfo.back(); // Since passed desired entry, go back to it.
 	}
 
+	/**
+	 * @return node whose entry covers column 0 of row
+	 */
+	@SuppressWarnings("unchecked")
+	private DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node rowStart(int row) {
+		return (DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node) rowStarts[row];
+	}
+
+	/**
+	 * Points rowStarts at cover for every row whose column 0 lies within node's
+	 * entry, i.e. from node's position up to the next node's.
+	 */
+	private void coverRows(DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node,
+			DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node cover) {
+		long start = node.item.getKey().offset();
+		long end = (node.next == null) ? (long) numRows * numCols : node.next.item.getKey().offset();
+		int firstRow = (int) ((start + numCols - 1) / numCols);
+		int lastRow = (int) ((end - 1) / numCols);
+		if (firstRow <= lastRow) {
+			Arrays.fill(rowStarts, firstRow, lastRow + 1, cover);
+		}
+	}
+
+	/**
+	 * @return whether current is on the entry covering the cell at offset, i.e.
+	 *         the last entry at or before it
+	 */
+	private boolean coversCurrent(long offset) {
+		DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node = tableInfo.current;
+		return node != null && !tableInfo.isOff() && node.item.getKey().offset() <= offset
+				&& (node.next == null || offset < node.next.item.getKey().offset());
+	}
+
+	/**
+	 * Adds entry to the list right after current, keeping the row starts and
+	 * index in step. Current ends up on the new node.
+	 */
+	private void addAfterCurrent(Association<RowOrderedPosn, ValueType> entry) {
+		tableInfo.addAfterCurrent(entry);
+		coverRows(tableInfo.current, tableInfo.current);
+		if (index != null) {
+			index.put(entry.getKey().offset(), tableInfo.current);
+		}
+	}
+
+	/**
+	 * Removes the entry current points to, keeping the row starts and index in
+	 * step. Current ends up on its successor.
+	 */
+	private void removeCurrent() {
+		coverRows(tableInfo.current, tableInfo.current.prev);
+		if (index != null) {
+			index.remove(tableInfo.currentValue().getKey().offset());
+		}
+		tableInfo.removeCurrent();
+	}
+
+	/**
+	 * Chooses where find starts its search.
+	 * 
+	 * @param fromCursor
+	 *            true to search relative to the current pointer, false to always
+	 *            rescan from the head of the list
+	 */
+	void setCursorSeek(boolean fromCursor) {
+		cursorSeek = fromCursor;
+	}
+
 	/**
 	 * Given a legal (row, col) cell in the table, update its value to newInfo. 
 	 * 
@@ -76,12 +239,21 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 			return;
 		}
 		
+		newInfo = intern(newInfo);
+		if (columns != null) {
+			columns.updateInfo(col, row, newInfo);
+		}
+		if (keepPersistent()) {
+			persistent.updateInfo(row, col, newInfo);
+		}
+		
 		//UPDATE PROCESS
-		RowOrderedPosn target = new RowOrderedPosn(row, col, numRows, numCols);
+		// cells are found by offset; a RowOrderedPosn is only made for an entry that is added
+		long target = (long) row * numCols + col;
 		find(target);
 		
 		//if the newInfo matches the already existing info, end the method
-		if (tableInfo.currentValue().getValue().equals(newInfo)) {
+		if (tableInfo.currentValue().getValue() == newInfo) {
 			return;
 		}
 		
@@ -89,12 +261,12 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 		ValueType oldInfo = tableInfo.currentValue().getValue();
 		
 		//if the to-be-updated node doesn't exist
-		if (!tableInfo.currentValue().getKey().equals(target)) {
+		if (tableInfo.currentValue().getKey().offset() != target) {
 			
 			//create the node and add it to the list
 			Association<RowOrderedPosn, ValueType> newNode = 
-					new Association<RowOrderedPosn,ValueType> (target, newInfo); 
-			tableInfo.addAfterCurrent(newNode); 
+					new Association<RowOrderedPosn,ValueType> (new RowOrderedPosn(row, col, numRows, numCols), newInfo); 
+			addAfterCurrent(newNode); 
 			
 		//if it does exist, update it 
 		} else {
@@ -106,11 +278,11 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 			tableInfo.next(); 
 			
 			//if we aren't at the end of the list or the next node doesn't match the next position
-			if (tableInfo.isOff() || !tableInfo.currentValue().getKey().equals(target.next())) {
+			if (tableInfo.isOff() || tableInfo.currentValue().getKey().offset() != target + 1) {
 				Association<RowOrderedPosn, ValueType> stopper = 
-						new Association<RowOrderedPosn,ValueType> (target.next(), oldInfo); 
+						new Association<RowOrderedPosn,ValueType> (posn(target + 1), oldInfo); 
 				tableInfo.back(); 
-				tableInfo.addAfterCurrent(stopper);
+				addAfterCurrent(stopper);
 			}
 		}
 		
@@ -136,9 +308,9 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 				Association<RowOrderedPosn, ValueType> prior = tableInfo.currentValue();
 			
 				// prior node value is same as the update value
-				if (prior.getValue().equals(newInfo)) {
+				if (prior.getValue() == newInfo) {
 					find(target);
-					tableInfo.removeCurrent();
+					removeCurrent();
 				}
 			
 			}
@@ -154,9 +326,9 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 				find(target);
 				
 				//succeeding node value is same as the update value
-				if (succ.getValue().equals(newInfo)) {
+				if (succ.getValue() == newInfo) {
 					tableInfo.next();
-					tableInfo.removeCurrent();
+					removeCurrent();
 					}
 			
 			//target node is not the first or last item
@@ -166,18 +338,18 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 				find(target);
 				
 				//prior and succeeding node value are the same as update value
-				if (prior.getValue().equals(newInfo) && succ.getValue().equals(newInfo)) {
-					tableInfo.removeCurrent();
-					tableInfo.removeCurrent();
+				if (prior.getValue() == newInfo && succ.getValue() == newInfo) {
+					removeCurrent();
+					removeCurrent();
 				
 				//prior node value is not the same as update value, but succeeding node value is
-				} else if (!(prior.getValue().equals(newInfo)) && succ.getValue().equals(newInfo)) {
+				} else if (prior.getValue() != newInfo && succ.getValue() == newInfo) {
 					tableInfo.next();
-					tableInfo.removeCurrent();
+					removeCurrent();
 				
 				//succeeding value is not the same as update value, but prior node value is
-				} else if (prior.getValue().equals(newInfo) && !(succ.getValue().equals(newInfo))) {
-					tableInfo.removeCurrent();
+				} else if (prior.getValue() == newInfo && succ.getValue() != newInfo) {
+					removeCurrent();
 				
 				//both prior and succeeding node value are not the same as update value
 				} else {
@@ -188,6 +360,188 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	}
 		
 
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo. Each row of the rectangle (or the whole rectangle if
+	 * it spans full rows) is spliced into the list as one entry, replacing the
+	 * entries inside it, and equal neighbouring entries are merged in a single
+	 * pass at the end.
+	 * 
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+		newInfo = intern(newInfo);
+		if (columns != null) {
+			columns.fillRect(rect.col0, rect.row0, rect.col1, rect.row1, newInfo);
+		}
+		if (keepPersistent()) {
+			persistent.fillRect(rect.row0, rect.col0, rect.row1, rect.col1, newInfo);
+		}
+
+		if (rect.fullRows()) {
+			fillRange(rect.from(), rect.to(), newInfo);
+		} else {
+			for (int r = rect.row0; r <= rect.row1; r++) {
+				fillRange((long) r * numCols + rect.col0, (long) r * numCols + rect.col1 + 1, newInfo);
+			}
+		}
+		mergeEqual(rect.from(), rect.to());
+	}
+
+	/**
+	 * Applies a batch of updates, giving the same result as calling updateInfo for
+	 * each in order. The updates are sorted into row order (keeping the original
+	 * order of updates to the same cell) and applied in one forward sweep of the
+	 * list without merging, then equal neighbouring entries are merged once over
+	 * the span that was touched.
+	 * 
+	 * @param updates: updates to apply
+	 */
+	public void applyUpdates(Iterable<CellUpdate<ValueType>> updates) {
+		List<CellUpdate<ValueType>> sorted = new ArrayList<CellUpdate<ValueType>>();
+		List<CellUpdate<ValueType>> transposed = new ArrayList<CellUpdate<ValueType>>();
+		for (CellUpdate<ValueType> update : updates) {
+			if (update.getRow() <= numRows - 1 && update.getCol() <= numCols - 1) {
+				sorted.add(update);
+				if (columns != null) {
+					transposed.add(new CellUpdate<ValueType>(update.getCol(), update.getRow(), update.getValue()));
+				}
+			}
+		}
+		if (sorted.isEmpty()) {
+			return;
+		}
+		if (columns != null) {
+			columns.applyUpdates(transposed);
+		}
+		// stable, so the last update to a cell is applied last
+		Collections.sort(sorted, (a, b) -> (a.getRow() != b.getRow()) ? Integer.compare(a.getRow(), b.getRow())
+				: Integer.compare(a.getCol(), b.getCol()));
+
+		long from = -1;
+		long to = -1;
+		boolean keepPersistent = keepPersistent();
+		for (CellUpdate<ValueType> update : sorted) {
+			long offset = (long) update.getRow() * numCols + update.getCol();
+			setCell(offset, update.getValue());
+			if (keepPersistent) {
+				persistent.updateInfo(update.getRow(), update.getCol(), update.getValue());
+			}
+			if (from < 0) {
+				from = offset;
+			}
+			to = offset + 1;
+		}
+		mergeEqual(from, to);
+	}
+
+	/**
+	 * @return the dictionary's copy of value, first dropping the values no entry
+	 *         holds any more if the dictionary has grown well past the number of
+	 *         entries
+	 */
+	private ValueType intern(ValueType value) {
+		if (dictionary.isStale(tableInfo.size())) {
+			BitSet used = new BitSet();
+			for (DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node = tableInfo.first; node != null; node = node.next) {
+				used.set(dictionary.encode(node.item.getValue())); // already present, so only looked up
+			}
+			dictionary.retain(used);
+		}
+		return dictionary.intern(value);
+	}
+
+	/**
+	 * Makes the cell at offset hold newInfo, splitting its entry if needed but
+	 * without merging with its neighbours.
+	 */
+	private void setCell(long offset, ValueType newInfo) {
+		newInfo = intern(newInfo);
+		find(offset);
+		ValueType oldInfo = tableInfo.currentValue().getValue();
+		if (oldInfo == newInfo) {
+			return;
+		}
+		if (tableInfo.currentValue().getKey().offset() == offset) {
+			tableInfo.currentValue().setValue(newInfo);
+		} else {
+			addAfterCurrent(new Association<RowOrderedPosn, ValueType>(posn(offset), newInfo));
+		}
+
+		// keep the following cell as it was
+		if (offset + 1 < (long) numRows * numCols) {
+			tableInfo.next();
+			if (tableInfo.isOff() || tableInfo.currentValue().getKey().offset() != offset + 1) {
+				tableInfo.back();
+				addAfterCurrent(new Association<RowOrderedPosn, ValueType>(posn(offset + 1), oldInfo));
+			}
+		}
+	}
+
+	/**
+	 * Makes the cells at offsets from (inclusive) to to (exclusive) a single entry
+	 * holding newInfo, without merging it with its neighbours.
+	 */
+	private void fillRange(long from, long to, ValueType newInfo) {
+		// keep the cells from to onwards as they were
+		if (to < (long) numRows * numCols) {
+			find(to);
+			if (tableInfo.currentValue().getKey().offset() != to) {
+				addAfterCurrent(new Association<RowOrderedPosn, ValueType>(posn(to), tableInfo.currentValue().getValue()));
+			}
+		}
+
+		find(from);
+		if (tableInfo.currentValue().getKey().offset() == from) {
+			tableInfo.currentValue().setValue(newInfo);
+		} else {
+			addAfterCurrent(new Association<RowOrderedPosn, ValueType>(posn(from), newInfo));
+		}
+
+		// drop the entries now covered by the new one
+		tableInfo.next();
+		while (!tableInfo.isOff() && tableInfo.currentValue().getKey().offset() < to) {
+			removeCurrent();
+		}
+	}
+
+	/**
+	 * Removes every entry from the one before offset from up to the one at offset
+	 * to that holds the same value as its predecessor.
+	 */
+	private void mergeEqual(long from, long to) {
+		find(from);
+		tableInfo.back();
+		if (tableInfo.isOff()) {
+			tableInfo.first();
+		}
+		ValueType prior = tableInfo.currentValue().getValue();
+		tableInfo.next();
+		while (!tableInfo.isOff() && tableInfo.currentValue().getKey().offset() <= to) {
+			if (tableInfo.currentValue().getValue() == prior) {
+				removeCurrent();
+			} else {
+				prior = tableInfo.currentValue().getValue();
+				tableInfo.next();
+			}
+		}
+	}
+
+	/**
+	 * @return position of the cell at the given offset in this table
+	 */
+	private RowOrderedPosn posn(long offset) {
+		return new RowOrderedPosn((int) (offset / numCols), (int) (offset % numCols), numRows, numCols);
+	}
+
 	/**
 	 * Returns contents of specified cell
 	 * 
@@ -199,12 +553,186 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	 * @return value stored in (row, col) cell of table
 	 */
 	public ValueType getInfo(int row, int col) {
-		RowOrderedPosn target = new RowOrderedPosn(row, col, numRows, numCols);
-		find(target);
+		find((long) row * numCols + col);
 		return tableInfo.currentValue().getValue();
 	
 	}
 
+	/**
+	 * Returns a read-only copy of the table as it is now. The first call copies
+	 * the runs into a PersistentTable, to which every later update is also
+	 * applied; from then on taking a snapshot costs O(1), a snapshot shares every
+	 * run not updated since it was taken, and it can be read from other threads
+	 * without locking while this table goes on being updated.
+	 * 
+	 * While the copy is kept, the table holds its runs twice and every update is
+	 * applied twice. The table only holds the latest snapshot weakly, and once
+	 * the garbage collector has found it unreachable the next update drops the
+	 * copy, so the cost lasts only as long as snapshots are in use. A snapshot
+	 * taken after that copies the runs again.
+	 * 
+	 * @return snapshot of the table
+	 */
+	public PersistentTable<ValueType> snapshot() {
+		if (persistent == null) {
+			PersistentTable<ValueType> copy = new PersistentTable<ValueType>(numRows, numCols,
+					tableInfo.getFirst().getValue());
+			for (RunCursor<ValueType> run : rowRuns(0, numRows - 1)) {
+				copy.fillRect(run.getRow(), run.getStartCol(), run.getRow(), run.getStartCol() + run.getLength() - 1,
+						run.getValue());
+			}
+			persistent = copy;
+		}
+		PersistentTable<ValueType> snapshot = persistent.snapshot();
+		lastSnapshot = new WeakReference<PersistentTable<ValueType>>(snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Drops the persistent copy if the last snapshot taken from it has been
+	 * collected, since no one is reading snapshots any more.
+	 * 
+	 * @return whether there is a persistent copy to keep in step with an update
+	 */
+	private boolean keepPersistent() {
+		if (persistent != null && lastSnapshot.get() == null) {
+			persistent = null;
+			lastSnapshot = null;
+		}
+		return persistent != null;
+	}
+
+	/**
+	 * Finds the node covering the cell at offset by walking from its row's start
+	 * node with a local finger. Unlike find it does not move current, so it
+	 * changes no state and any number of threads may call it at once while
+	 * nothing updates the table.
+	 * 
+	 * @return node whose entry covers the cell at offset
+	 */
+	DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node nodeAt(long offset) {
+		DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node = rowStart((int) (offset / numCols));
+		while (node.next != null && node.next.item.getKey().offset() <= offset) {
+			node = node.next;
+		}
+		return node;
+	}
+
+	/**
+	 * @return offset just past the last cell of node's entry
+	 */
+	long nodeEnd(DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node) {
+		return (node.next == null) ? (long) numRows * numCols : node.next.item.getKey().offset();
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive. The
+	 * cursor starts from the row start node and walks the list's nodes itself,
+	 * so it does not move current.
+	 * 
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		return new RunCursor<ValueType>(numRows, numCols) {
+			DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node;
+
+			protected void seek(long offset) {
+				node = nodeAt(offset);
+			}
+
+			protected void advance() {
+				node = node.next;
+			}
+
+			protected long runEnd() {
+				return nodeEnd(node);
+			}
+
+			protected ValueType runValue() {
+				return node.item.getValue();
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * Returns a cursor over the runs of columns col0 through col1, inclusive, from
+	 * top to bottom. The first call builds a transposed copy of the table, whose
+	 * rows are this table's columns; from then on every update is applied to both,
+	 * so reading a column only walks that column's runs.
+	 * 
+	 * @param col0: first column to read
+	 * @param col1: last column to read
+	 * @return cursor over the runs of those columns
+	 */
+	public ColumnRunCursor<ValueType> colRuns(int col0, int col1) {
+		if (columns == null) {
+			buildColumns();
+		}
+		return new ColumnRunCursor<ValueType>(columns.rowRuns(col0, col1));
+	}
+
+	/**
+	 * Builds the transposed copy of the table a column at a time, keeping a
+	 * finger in each row that only moves forward, so building takes
+	 * O(cells + entries) steps plus one fill per run of each column.
+	 */
+	private void buildColumns() {
+		ValueType defaultValue = tableInfo.first.item.getValue();
+		columns = new CompressedTable<ValueType>(numCols, numRows, defaultValue);
+		Object[] fingers = rowStarts.clone();
+		for (int c = 0; c < numCols; c++) {
+			int runStart = 0;
+			ValueType runValue = null;
+			for (int r = 0; r < numRows; r++) {
+				@SuppressWarnings("unchecked")
+				DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node finger =
+						(DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node) fingers[r];
+				long target = (long) r * numCols + c;
+				while (finger.next != null && finger.next.item.getKey().offset() <= target) {
+					finger = finger.next;
+				}
+				fingers[r] = finger;
+
+				ValueType value = finger.item.getValue();
+				if (r == 0) {
+					runValue = value;
+				} else if (value != runValue) {
+					fillColumn(c, runStart, r - 1, runValue, defaultValue);
+					runStart = r;
+					runValue = value;
+				}
+			}
+			fillColumn(c, runStart, numRows - 1, runValue, defaultValue);
+		}
+	}
+
+	/**
+	 * Writes rows row0 through row1 of column col into the transposed copy while
+	 * it is being built. Everything after the cells written so far still holds
+	 * defaultValue, so runs of that value need no writing.
+	 */
+	private void fillColumn(int col, int row0, int row1, ValueType value, ValueType defaultValue) {
+		if (value != defaultValue) {
+			columns.fillRect(col, row0, col, row1, value);
+		}
+	}
+
+	/**
+	 * @return dictionary of the values stored in the table
+	 */
+	public ValueDictionary<ValueType> getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @return description of the value dictionary and the memory it saves
+	 */
+	public String dictionaryStats() {
+		return dictionary.stats(tableInfo.size());
+	}
+
 	/**
 	 *  @return
 	 *  		 succinct description of contents of table
@@ -213,16 +741,30 @@ class CompressedTable<ValueType> implements TwoDTable<ValueType> {
 	    return tableInfo.otherString();
 	}
 
-	public String entireTable() { //do not change
-		StringBuilder ans = new StringBuilder("");
-		for (int r = 0; r < numRows; r++) {
-			for (int c = 0; c < numCols; c++) {
-				ans.append(this.getInfo(r, c));
+	/**
+	 * Writes the table to out a row per line, walking the list once rather than
+	 * looking up every cell. Current is left where it was.
+	 * 
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		long numCells = (long) numRows * numCols;
+		int col = 0;
+		DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node finger;
+		for (finger = tableInfo.first; finger != null; finger = finger.next) {
+			String value = String.valueOf(finger.item.getValue());
+			long end = (finger.next == null) ? numCells : finger.next.item.getKey().offset();
+			for (long pos = finger.item.getKey().offset(); pos < end; pos++) {
+				out.append(value);
+				if (++col == numCols) {
+					out.append('\n');
+					col = 0;
+				}
 			}
-			ans.append("\n");
 		}
-		return ans.toString();
-
 	}
 
 	/**
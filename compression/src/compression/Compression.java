@@ -1,5 +1,9 @@
 package compression;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -30,13 +34,24 @@ public class Compression {
 		while (!line.equals("exit")) {
 			if (line.equals("display")) {
 				System.out.println(table);
+			} else if (line.equals("stats")) {
+				// stats: the table's value dictionary and the memory it saves
+				System.out.println(((CompressedTable<?>) table).dictionaryStats());
 			} else if (line.startsWith("update")){
 				splitContents = line.split(" ");
 				int r = Integer.parseInt(splitContents[1]);
 				int c = Integer.parseInt(splitContents[2]);
-				String val = splitContents[3];
+				String val = splitContents[3]; // a fresh String, but the table keeps its dictionary's copy
 
 				table.updateInfo(r, c, val);
+			} else if (line.startsWith("load")) {
+				// load file: replace the table with a grid read from a .csv or entireTable text file
+				String file = line.substring(4).trim();
+				try (Reader reader = Files.newBufferedReader(Paths.get(file))) {
+					table = file.endsWith(".csv") ? TableImport.readCsv(reader) : TableImport.readText(reader);
+				} catch (IOException e) {
+					System.out.println("Couldn't load " + file + ": " + e.getMessage());
+				}
 			}
 			else {
 				System.out.println("I didn't get that. Try again!");
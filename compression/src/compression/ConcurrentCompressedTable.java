@@ -0,0 +1,212 @@
+package compression;
+
+import java.io.IOException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * CompressedTable that may be read from any number of threads while others
+ * update it. Lookups do not use the list's current pointer, which find moves
+ * and which would otherwise be shared between readers; instead each lookup
+ * walks from its row's start node with a finger of its own (see
+ * CompressedTable.nodeAt).
+ *
+ * Writers take a StampedLock's write lock, so updates are applied one at a
+ * time. getInfo first reads optimistically, without locking, and only takes
+ * the read lock if a write happened during the lookup, so reads that do not
+ * overlap a write never block or contend with each other. Cursors returned by
+ * rowRuns read each run under the lock and are weakly consistent: every run
+ * they report was in the table at some point while they were in use.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class ConcurrentCompressedTable<ValueType> implements TwoDTable<ValueType> {
+	private final CompressedTable<ValueType> table;
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public ConcurrentCompressedTable(int rows, int cols, ValueType defaultValue) {
+		table = new CompressedTable<ValueType>(rows, cols, defaultValue);
+		// an optimistic reader may still be on a removed node, which must not reappear elsewhere
+		table.tableInfo.setNodePool(0);
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		long stamp = lock.writeLock();
+		try {
+			table.updateInfo(row, col, newInfo);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo, as a single write.
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		long stamp = lock.writeLock();
+		try {
+			table.fillRect(row0, col0, row1, col1, newInfo);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Applies a batch of updates as a single write.
+	 */
+	public void applyUpdates(Iterable<CellUpdate<ValueType>> updates) {
+		long stamp = lock.writeLock();
+		try {
+			table.applyUpdates(updates);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		long offset = (long) row * table.numCols + col;
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				ValueType value = table.nodeAt(offset).item.getValue();
+				if (lock.validate(stamp)) {
+					return value;
+				}
+			} catch (RuntimeException e) {
+				// the walk saw the list halfway through a write; retry under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return table.nodeAt(offset).item.getValue();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive. Each
+	 * run is read under the read lock; if the table was written since the
+	 * previous run was read, the cursor finds its place again from the row start
+	 * rather than following a node that may have been removed.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		return new RunCursor<ValueType>(table.numRows, table.numCols) {
+			DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node node;
+			long version; // stamp showing no write since node was read
+			long end;
+			ValueType value;
+
+			protected void seek(long offset) {
+				long stamp = lock.readLock();
+				try {
+					read(table.nodeAt(offset));
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+
+			protected void advance() {
+				long stamp = lock.readLock();
+				try {
+					read(lock.validate(version) ? node.next : table.nodeAt(end));
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+
+			/**
+			 * Copies what the cursor reports from next, under the read lock.
+			 */
+			private void read(DoublyLinkedList<Association<RowOrderedPosn, ValueType>>.Node next) {
+				node = next;
+				end = table.nodeEnd(node);
+				value = node.item.getValue();
+				version = lock.tryOptimisticRead();
+			}
+
+			protected long runEnd() {
+				return end;
+			}
+
+			protected ValueType runValue() {
+				return value;
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * Returns a read-only copy of the table as it is now, which can be read
+	 * without locking while the table goes on being updated (see
+	 * CompressedTable.snapshot). The write lock is held only while the snapshot
+	 * is taken, which after the first one costs O(1).
+	 * 
+	 * @return snapshot of the table
+	 */
+	public PersistentTable<ValueType> snapshot() {
+		long stamp = lock.writeLock();
+		try {
+			return table.snapshot();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @return succinct description of contents of table
+	 */
+	public String toString() {
+		long stamp = lock.readLock();
+		try {
+			return table.toString();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Writes the table to out a row per line, holding the read lock throughout.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		long stamp = lock.readLock();
+		try {
+			table.entireTable(out);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+}
@@ -144,6 +144,19 @@ public class CurDoublyLinkedList<E> extends DoublyLinkedList<E> {
 		}
 	}
 
+	/**
+	 * Point current directly at the given node
+	 *
+	 * @pre: node is in this list
+	 * 
+	 * @post: current set to node, off states are false
+	 */
+	protected void moveTo(DoublyLinkedList<E>.Node node) {
+		current = node;
+		off_left = false;
+		off_right = false;
+	}
+
 	/**
 	 * Check whether current pointer is off the right side of the list (right of the
 	 * tail)
@@ -399,15 +412,17 @@ public class CurDoublyLinkedList<E> extends DoublyLinkedList<E> {
 		} else if (current == last) {
 			addLast(value);
 		
-		//otherwise add the item after current and update current
+		//otherwise splice the item in after current and update current
 		} else {
-			add((getIndex(current.item))+1, value);
-			next();
+			current = addAfter(current, value);
 		}
 	}
 
 	/**
 	 * Removes the node that current points to. Current now points to the successor.
+	 * If the removed node was the tail, there is no successor and current goes
+	 * off the right end; if it was the only node, the list is empty and current
+	 * goes off the left end, as if back() had been called on the first node.
 	 *
 	 * @pre: List is non-empty and current is not off list
 	 * 
@@ -419,24 +434,30 @@ public class CurDoublyLinkedList<E> extends DoublyLinkedList<E> {
 	 *       "Current is off list"
 	 *
 	 * @post: Removes the node that current points to and moves current to its
-	 *        successor
+	 *        successor; if it was the tail, current is null and isOffRight(); if
+	 *        it was the only node, current is null and isOffLeft()
 	 */
 	public void removeCurrent() {
 		if (isEmpty()) {
 			throw new IllegalStateException("Empty list, current points to null");
 		} else if (isOff()) {
 			throw new IllegalStateException("Current is off list");
-		} else if (current == first && current == last) {
-			remove(getIndex(current.item));
-		} else if (current == first) {
-			remove(getIndex(current.item));
-			next();
-		} else if (current == last) {
-			remove(getIndex(current.item));
-			current = null;
 		} else {
-			remove(getIndex(current.item));
-			next();
+			DoublyLinkedList<E>.Node successor = current.next;
+			unlink(current);
+			
+			//removed the only node, so current goes off left
+			if (n == 0) {
+				current = null;
+				off_left = true;
+				
+			//removed the tail, so current goes off right
+			} else if (successor == null) {
+				current = null;
+				off_right = true;
+			} else {
+				current = successor;
+			}
 		}
 	}
 
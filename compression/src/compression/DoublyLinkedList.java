@@ -14,6 +14,9 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 	protected Node first; // head of the doubly linked list
 	protected Node last; // tail of the doubly linked list
 	protected int n; // number of nodes in the doubly linked list
+	private Node free; // removed nodes kept for reuse, linked through next
+	private int freeCount; // number of nodes in free
+	private int maxFree; // most removed nodes to keep; 0 keeps none
 
 	/**
 	 * This nested class defines the nodes in the doubly linked list with a value
@@ -32,6 +35,65 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 		}
 	}
 
+	/**
+	 * Keeps up to maxNodes removed nodes for reuse by later adds, so a list whose
+	 * size goes up and down does not allocate a node for every add. Removed nodes
+	 * are cleared before they are kept. Pooling is off (maxNodes 0) by default; it
+	 * must stay off while anything may still follow a node after its removal,
+	 * since the node may come back elsewhere in the list.
+	 * 
+	 * @param maxNodes
+	 *            the most removed nodes to keep
+	 */
+	public void setNodePool(int maxNodes) {
+		maxFree = maxNodes;
+		while (freeCount > maxFree) {
+			free = free.next;
+			freeCount--;
+		}
+	}
+
+	/**
+	 * Returns a node holding item, taken from the pool if it has one.
+	 * 
+	 * @param item
+	 *            the item for the node to hold
+	 * @return the node, with no neighbours
+	 */
+	private Node newNode(Item item) {
+		Node node = free;
+		if (node == null) {
+			node = new Node();
+		} else {
+			free = node.next;
+			node.next = null;
+			freeCount--;
+		}
+		node.item = item;
+		return node;
+	}
+
+	/**
+	 * Clears a node that has been removed from the list, so it does not keep its
+	 * item or neighbours reachable, and keeps it for reuse if the pool has room.
+	 * 
+	 * @param node
+	 *            the removed node
+	 * @return the item the node held
+	 */
+	private Item recycle(Node node) {
+		Item item = node.item;
+		node.item = null;
+		node.prev = null;
+		node.next = null;
+		if (freeCount < maxFree) {
+			node.next = free;
+			free = node;
+			freeCount++;
+		}
+		return item;
+	}
+
 	/**
 	 * Returns true if the doubly linked list does not contain any item.
 	 * 
@@ -115,8 +177,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 		Node oldfirst = first;
 
 		// Make a new node and assign it to head. Fix pointers.
-		first = new Node();
-		first.item = item;
+		first = newNode(item);
 		first.next = oldfirst;
 		first.prev = null;
 
@@ -140,8 +201,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 		Node oldlast = last;
 
 		// Make a new node and assign it to tail. Fix pointers.
-		last = new Node();
-		last.item = item;
+		last = newNode(item);
 		last.next = null;
 		last.prev = oldlast;
 
@@ -180,8 +240,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 				index--;
 			}
 			// create new value to insert in correct position
-			Node current = new Node();
-			current.item = item;
+			Node current = newNode(item);
 			current.next = finger;
 			current.prev = previous;
 			previous.next = current;
@@ -191,6 +250,56 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 		}
 	}
 
+	/**
+	 * Inserts the specified item immediately after the given node without
+	 * searching the list.
+	 * 
+	 * @pre node is in this list
+	 * @param node
+	 *            the node to insert after
+	 * @param item
+	 *            the item to insert
+	 * @return the newly created node
+	 */
+	protected Node addAfter(Node node, Item item) {
+		Node added = newNode(item);
+		added.prev = node;
+		added.next = node.next;
+
+		if (node.next == null)
+			last = added;
+		else
+			node.next.prev = added;
+		node.next = added;
+
+		n++;
+		return added;
+	}
+
+	/**
+	 * Removes the given node from the list by relinking its neighbours. The node
+	 * is cleared and may be reused by a later add.
+	 * 
+	 * @pre node is in this list
+	 * @param node
+	 *            the node to remove
+	 * @return the item held by the removed node
+	 */
+	protected Item unlink(Node node) {
+		if (node.prev == null)
+			first = node.next;
+		else
+			node.prev.next = node.next;
+
+		if (node.next == null)
+			last = node.prev;
+		else
+			node.next.prev = node.prev;
+
+		n--;
+		return recycle(node);
+	}
+
 	/**
 	 * Retrieves and removes the head of the doubly linked list.
 	 * 
@@ -206,11 +315,9 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 		} else {
 			last = null; // remove final node.
 		}
-		oldFirst.next = null;
-
 		n--;
 
-		return oldFirst.item;
+		return recycle(oldFirst);
 	}
 
 	/**
@@ -230,7 +337,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 			last.next = null;
 		}
 		n--;
-		return temp.item;
+		return recycle(temp);
 	}
 
 	/**
@@ -261,7 +368,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 
 			n--;
 			// finger's value is old value, return it
-			return finger.item;
+			return recycle(finger);
 		}
 
 	}
@@ -294,7 +401,7 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 				last = finger.prev;
 			}
 			n--;
-			return finger.item;
+			return recycle(finger);
 		}
 		return null;
 	}
@@ -327,18 +434,19 @@ public class DoublyLinkedList<Item> implements Iterable<Item> {
 			return "Doubly Linked List: []";
 		}
 
-		String ret = "Doubly Linked List: [<- ";
+		// appended rather than concatenated, which would copy the string so far for every item
+		StringBuilder ret = new StringBuilder("Doubly Linked List: [<- ");
 		Iterator<Item> i = this.iterator();
+		ret.append(i.next());
 		while (i.hasNext()) {
-			ret += i.next();
-			ret += " <-> ";
+			ret.append(" <-> ");
+			ret.append(i.next());
 		}
-		ret = ret.substring(0, ret.length() - 5);
 
-		ret += " ->] First: ";
-		ret += first.item;
-		ret += ", Last: " + last.item;
-		return ret;
+		ret.append(" ->] First: ");
+		ret.append(first.item);
+		ret.append(", Last: ").append(last.item);
+		return ret.toString();
 	}
 
 	/**
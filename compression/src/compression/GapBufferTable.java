@@ -0,0 +1,418 @@
+/**
+ * Base class for compressed 2-dimensional tables whose runs are kept in two
+ * parallel arrays of slots rather than a linked list: the offset
+ * (row * numCols + col) at which each run begins, in increasing order, and
+ * the dictionary code of each run's value, so neighbouring runs are compared
+ * as ints. Lookups binary search the starts.
+ *
+ * The slots are used as a gap buffer: the unused slots sit in one block at
+ * the position of the last insertion or removal, so a series of nearby
+ * updates only shifts the few runs between them.
+ *
+ * Subclasses provide the storage for the slots: ArrayRunTable keeps them in
+ * Java arrays and OffHeapTable in direct buffers.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+package compression;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+abstract class GapBufferTable<ValueType> implements TwoDTable<ValueType> {
+
+	protected static final int INITIAL_CAPACITY = 16;
+
+	protected int numRows;
+	protected int numCols;
+	protected long numCells; // numRows * numCols
+
+	private ValueDictionary<ValueType> dictionary = new ValueDictionary<ValueType>();
+	private int gapStart; // first unused slot
+	private int gapEnd; // first used slot after the gap
+
+	/**
+	 * Constructor for table of size rows x cols. The subclass must allocate at
+	 * least one slot and then call init.
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 */
+	protected GapBufferTable(int rows, int cols) {
+		numRows = rows;
+		numCols = cols;
+		numCells = (long) rows * cols;
+	}
+
+	/**
+	 * Makes the table a single run holding defaultValue, with every other slot
+	 * in the gap.
+	 *
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	protected void init(ValueType defaultValue) {
+		set(0, 0, dictionary.encode(defaultValue));
+		gapStart = 1;
+		gapEnd = capacity();
+	}
+
+	/**
+	 * @return number of slots in the storage
+	 */
+	protected abstract int capacity();
+
+	/**
+	 * @return start offset held in the given slot
+	 */
+	protected abstract long start(int slot);
+
+	/**
+	 * @return value code held in the given slot
+	 */
+	protected abstract int code(int slot);
+
+	/**
+	 * Stores a run's start offset and value code in the given slot.
+	 */
+	protected abstract void set(int slot, long start, int code);
+
+	/**
+	 * Replaces the value code held in the given slot.
+	 */
+	protected abstract void setCode(int slot, int code);
+
+	/**
+	 * Copies count slots starting at from to the slots starting at to, which may
+	 * overlap them.
+	 */
+	protected abstract void copySlots(int from, int to, int count);
+
+	/**
+	 * Replaces the storage with a larger one, keeping the first head slots at
+	 * its start and the last tail slots at its end.
+	 *
+	 * @return the new capacity
+	 */
+	protected abstract int grow(int head, int tail);
+
+	/**
+	 * Checks that the table can still be used. Does nothing unless the subclass
+	 * can release its storage.
+	 */
+	protected void checkOpen() {
+	}
+
+	/**
+	 * @return number of runs currently stored
+	 */
+	public int numRuns() {
+		return capacity() - (gapEnd - gapStart);
+	}
+
+	/**
+	 * @return dictionary of the values stored in the table
+	 */
+	public ValueDictionary<ValueType> getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @return description of the value dictionary and the memory it saves
+	 */
+	public String dictionaryStats() {
+		return dictionary.stats(numRuns());
+	}
+
+	/**
+	 * @return slot holding the index-th run
+	 */
+	private int slot(int index) {
+		return (index < gapStart) ? index : index + (gapEnd - gapStart);
+	}
+
+	private long runStart(int index) {
+		return start(slot(index));
+	}
+
+	private int runCode(int index) {
+		return code(slot(index));
+	}
+
+	private ValueType value(int index) {
+		return dictionary.decode(runCode(index));
+	}
+
+	/**
+	 * @return code of value, first dropping the values no run holds any more if
+	 *         the dictionary has grown well past the number of runs
+	 */
+	private int encode(ValueType value) {
+		int runs = numRuns();
+		if (dictionary.isStale(runs)) {
+			BitSet used = new BitSet();
+			for (int i = 0; i < runs; i++) {
+				used.set(runCode(i));
+			}
+			dictionary.retain(used);
+		}
+		return dictionary.encode(value);
+	}
+
+	/**
+	 * @return index of the run covering the cell at offset target, i.e. the last
+	 *         run whose start is <= target
+	 */
+	private int floorIndex(long target) {
+		int lo = 0; // runStart(lo) <= target always holds, since run 0 starts at 0
+		int hi = numRuns() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (runStart(mid) <= target) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Moves the gap so that it begins just before the index-th run.
+	 */
+	private void moveGap(int index) {
+		if (index < gapStart) {
+			int count = gapStart - index;
+			copySlots(index, gapEnd - count, count);
+			gapStart -= count;
+			gapEnd -= count;
+		} else if (index > gapStart) {
+			int count = index - gapStart;
+			copySlots(gapEnd, gapStart, count);
+			gapStart += count;
+			gapEnd += count;
+		}
+	}
+
+	/**
+	 * Inserts a run so that it becomes the index-th run.
+	 */
+	private void insert(int index, long start, int code) {
+		if (gapStart == gapEnd) {
+			int tail = capacity() - gapEnd;
+			gapEnd = grow(gapStart, tail) - tail;
+		}
+		moveGap(index);
+		set(gapStart, start, code);
+		gapStart++;
+	}
+
+	/**
+	 * Removes the index-th run.
+	 */
+	private void remove(int index) {
+		moveGap(index);
+		gapEnd++;
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		checkOpen();
+		if (row > (numRows - 1) || col > (numCols - 1)) {
+			return;
+		}
+
+		long target = (long) row * numCols + col;
+		int run = floorIndex(target);
+		int oldCode = runCode(run);
+		int newCode = encode(newInfo);
+		if (oldCode == newCode) {
+			return;
+		}
+		long end = (run + 1 < numRuns()) ? runStart(run + 1) : numCells;
+
+		// give target a run of its own
+		int cell;
+		if (runStart(run) == target) {
+			setCode(slot(run), newCode);
+			cell = run;
+		} else {
+			cell = run + 1;
+			insert(cell, target, newCode);
+		}
+
+		// cells after target keep the old value, otherwise merge with the next run
+		if (target + 1 < end) {
+			insert(cell + 1, target + 1, oldCode);
+		} else if (cell + 1 < numRuns() && runCode(cell + 1) == newCode) {
+			remove(cell + 1);
+		}
+
+		// merge with the previous run
+		if (cell > 0 && runCode(cell - 1) == newCode) {
+			remove(cell);
+		}
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo. Each row of the rectangle (or the whole rectangle if
+	 * it spans full rows) becomes one run replacing the runs inside it, and equal
+	 * neighbouring runs are merged in a single pass at the end.
+	 *
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		checkOpen();
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+
+		int newCode = encode(newInfo);
+		long from = rect.from();
+		long to = rect.to();
+		if (rect.fullRows()) {
+			fillRange(from, to, newCode);
+		} else {
+			for (int r = rect.row0; r <= rect.row1; r++) {
+				fillRange((long) r * numCols + rect.col0, (long) r * numCols + rect.col1 + 1, newCode);
+			}
+		}
+
+		// merge equal neighbours from the run before the rectangle to the run after it
+		int run = Math.max(0, floorIndex(from) - 1);
+		while (run + 1 < numRuns() && runStart(run + 1) <= to) {
+			if (runCode(run + 1) == runCode(run)) {
+				remove(run + 1);
+			} else {
+				run++;
+			}
+		}
+	}
+
+	/**
+	 * Makes the cells at offsets from (inclusive) to to (exclusive) a single run
+	 * holding the value with code newCode, without merging it with its
+	 * neighbours.
+	 */
+	private void fillRange(long from, long to, int newCode) {
+		// keep the cells from to onwards as they were
+		if (to < numCells) {
+			int last = floorIndex(to);
+			if (runStart(last) != to) {
+				insert(last + 1, to, runCode(last));
+			}
+		}
+
+		int run = floorIndex(from);
+		if (runStart(run) == from) {
+			setCode(slot(run), newCode);
+		} else {
+			run++;
+			insert(run, from, newCode);
+		}
+
+		// drop the runs now covered by the new one
+		int covered = floorIndex(to - 1) - run;
+		if (covered > 0) {
+			moveGap(run + 1);
+			gapEnd += covered;
+		}
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		checkOpen();
+		return value(floorIndex((long) row * numCols + col));
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		checkOpen();
+		return new RunCursor<ValueType>(numRows, numCols) {
+			int run;
+
+			protected void seek(long offset) {
+				run = floorIndex(offset);
+			}
+
+			protected void advance() {
+				run++;
+			}
+
+			protected long runEnd() {
+				return (run + 1 < numRuns()) ? runStart(run + 1) : numCells;
+			}
+
+			protected ValueType runValue() {
+				return value(run);
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable
+	 */
+	public String toString() {
+		checkOpen();
+		StringBuilder ans = new StringBuilder("CurDoublyLinkedList:\n");
+		for (int i = 0; i < numRuns(); i++) {
+			long start = runStart(i);
+			RowOrderedPosn pos = new RowOrderedPosn((int) (start / numCols), (int) (start % numCols), numRows,
+					numCols);
+			ans.append(new Association<RowOrderedPosn, ValueType>(pos, value(i)) + "\n");
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line, in one pass over the runs.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		checkOpen();
+		int col = 0;
+		int runs = numRuns();
+		for (int i = 0; i < runs; i++) {
+			String value = String.valueOf(value(i));
+			long end = (i + 1 < runs) ? runStart(i + 1) : numCells;
+			for (long pos = runStart(i); pos < end; pos++) {
+				out.append(value);
+				if (++col == numCols) {
+					out.append('\n');
+					col = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,407 @@
+package compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Table whose updates survive restarts. The table lives in a directory holding
+ * a snapshot of its runs (SNAPSHOT, a TableFile) and an append-only log of the
+ * updates made since (LOG). Updates are applied in memory and added to the
+ * current group of log records; once groupSize records have been added the
+ * group is written to the log as one frame and the log is forced to disk, so
+ * the cost of each fsync is shared by the whole group. When the log grows past
+ * compactBytes the table is compacted: a new snapshot is written beside the
+ * old one and moved over it, and the log is emptied.
+ *
+ * Opening the directory again reads the snapshot and replays the log onto it.
+ * Each frame carries its length and a CRC32 of its records, so a frame torn by
+ * a crash is detected; it and anything after it are cut from the log. Updates
+ * in a group that was not yet committed are lost, so callers needing an
+ * update to be durable call commit().
+ *
+ * Log records, with varint fields:
+ *
+ * <pre>
+ * VALUE  code, length, UTF-8 bytes   defines a value code for this log
+ * UPDATE row, col, code              updateInfo(row, col, value)
+ * RECT   row0, col0, row1, col1, code fillRect(row0, col0, row1, col1, value)
+ * </pre>
+ */
+class LoggedTable implements TwoDTable<String>, Closeable {
+	static final String SNAPSHOT = "table.ctb";
+	static final String LOG = "table.log";
+	private static final byte VALUE = 1, UPDATE = 2, RECT = 3;
+	private static final int FRAME_HEADER = 8; // int length, int CRC32
+
+	private final Path dir;
+	private final int groupSize;
+	private final long compactBytes;
+	private TwoDTable<String> table;
+	private FileChannel log;
+	private ValueDictionary<String> logValues = new ValueDictionary<String>(); // codes defined in the log so far
+	private ByteArrayOutputStream group = new ByteArrayOutputStream(); // records not yet written
+	private int pending; // number of records in group
+
+	private LoggedTable(Path dir, int groupSize, long compactBytes) {
+		this.dir = dir;
+		this.groupSize = groupSize;
+		this.compactBytes = compactBytes;
+	}
+
+	/**
+	 * Opens the table stored in dir, recovering it from its snapshot and log, or
+	 * creates a rows x cols table filled with defaultValue there if dir holds no
+	 * table yet.
+	 *
+	 * @param dir
+	 *            directory holding the table
+	 * @param rows
+	 *            # of rows, if the table is new
+	 * @param cols
+	 *            # of columns, if the table is new
+	 * @param defaultValue
+	 *            initial value of every cell, if the table is new
+	 * @param groupSize
+	 *            number of records written and forced to disk together
+	 * @param compactBytes
+	 *            log size at which the table is compacted
+	 * @return the table
+	 * @throws IOException
+	 *             if the directory cannot be read or written
+	 */
+	public static LoggedTable open(Path dir, int rows, int cols, String defaultValue, int groupSize,
+			long compactBytes) throws IOException {
+		LoggedTable logged = new LoggedTable(dir, groupSize, compactBytes);
+		Files.createDirectories(dir);
+		Path snapshot = dir.resolve(SNAPSHOT);
+		if (Files.exists(snapshot)) {
+			logged.table = TableFile.open(snapshot, true);
+		} else {
+			logged.table = new CompressedTable<String>(rows, cols, defaultValue);
+			logged.writeSnapshot();
+		}
+		logged.log = FileChannel.open(dir.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		logged.replay();
+		return logged;
+	}
+
+	/**
+	 * Applies every intact frame of the log to the table and cuts the log after
+	 * the last of them. Frames are read one at a time, so only the largest frame
+	 * is ever held in memory, whatever the size of the log.
+	 */
+	private void replay() throws IOException {
+		long size = log.size();
+		long good = 0; // end of the last intact frame
+		ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+		ByteBuffer records = ByteBuffer.allocate(0);
+		CRC32 crc = new CRC32();
+		while (size - good >= FRAME_HEADER) {
+			header.clear();
+			if (!readFully(header, good)) {
+				break;
+			}
+			int length = header.getInt(0);
+			int checksum = header.getInt(4);
+			if (length < 0 || length > size - good - FRAME_HEADER) {
+				break;
+			}
+			if (records.capacity() < length) {
+				records = ByteBuffer.allocate(length);
+			}
+			records.clear().limit(length);
+			if (!readFully(records, good + FRAME_HEADER)) {
+				break;
+			}
+			records.flip();
+			crc.reset();
+			crc.update(records.duplicate());
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			while (records.hasRemaining()) {
+				apply(records);
+			}
+			good += FRAME_HEADER + length;
+		}
+		log.truncate(good);
+		log.position(good);
+	}
+
+	/**
+	 * Reads the log from position on until buffer is full.
+	 *
+	 * @return false if the log ended first
+	 */
+	private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = log.read(buffer, position);
+			if (read < 0) {
+				return false;
+			}
+			position += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the record at the start of records to the table.
+	 */
+	private void apply(ByteBuffer records) {
+		byte type = records.get();
+		if (type == VALUE) {
+			int code = (int) readVarint(records);
+			byte[] value = new byte[(int) readVarint(records)];
+			records.get(value);
+			if (logValues.encode(new String(value, StandardCharsets.UTF_8)) != code) {
+				throw new IllegalStateException("Log defines value code " + code + " out of order");
+			}
+		} else if (type == UPDATE) {
+			int row = (int) readVarint(records);
+			int col = (int) readVarint(records);
+			table.updateInfo(row, col, logValues.decode((int) readVarint(records)));
+		} else if (type == RECT) {
+			int row0 = (int) readVarint(records);
+			int col0 = (int) readVarint(records);
+			int row1 = (int) readVarint(records);
+			int col1 = (int) readVarint(records);
+			table.fillRect(row0, col0, row1, col1, logValues.decode((int) readVarint(records)));
+		} else {
+			throw new IllegalStateException("Unknown log record type " + type);
+		}
+	}
+
+	private static long readVarint(ByteBuffer in) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Starts a record of the given type for value, first defining value's code if
+	 * this log has not used it yet.
+	 *
+	 * @return code of value
+	 */
+	private int record(byte type, String value) throws IOException {
+		int known = logValues.size();
+		int code = logValues.encode(value);
+		if (code == known) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			group.write(VALUE);
+			TableFile.writeVarint(group, code);
+			TableFile.writeVarint(group, bytes.length);
+			group.write(bytes);
+		}
+		group.write(type);
+		return code;
+	}
+
+	/**
+	 * Counts the record just added, committing the group once it is full.
+	 */
+	private void added() throws IOException {
+		if (++pending >= groupSize) {
+			commit();
+		}
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo. The
+	 * update is durable once its group has been committed.
+	 *
+	 * throws UncheckedIOException if the log cannot be written
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, String newInfo) {
+		table.updateInfo(row, col, newInfo);
+		try {
+			int code = record(UPDATE, newInfo);
+			TableFile.writeVarint(group, row);
+			TableFile.writeVarint(group, col);
+			TableFile.writeVarint(group, code);
+			added();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo, logged as a single record.
+	 *
+	 * throws UncheckedIOException if the log cannot be written
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, String newInfo) {
+		row0 = Math.max(row0, 0);
+		col0 = Math.max(col0, 0);
+		if (row0 > row1 || col0 > col1) {
+			return;
+		}
+		table.fillRect(row0, col0, row1, col1, newInfo);
+		try {
+			int code = record(RECT, newInfo);
+			TableFile.writeVarint(group, row0);
+			TableFile.writeVarint(group, col0);
+			TableFile.writeVarint(group, row1);
+			TableFile.writeVarint(group, col1);
+			TableFile.writeVarint(group, code);
+			added();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the records added since the last commit to the log as one frame and
+	 * forces the log to disk, then compacts the table if the log has grown past
+	 * compactBytes.
+	 *
+	 * @throws IOException
+	 *             if the log cannot be written
+	 */
+	public void commit() throws IOException {
+		flush();
+		if (log.size() >= compactBytes) {
+			compact();
+		}
+	}
+
+	/**
+	 * Writes the records added since the last commit to the log as one frame and
+	 * forces the log to disk.
+	 */
+	private void flush() throws IOException {
+		if (pending > 0) {
+			byte[] records = group.toByteArray();
+			CRC32 crc = new CRC32();
+			crc.update(records);
+			ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + records.length);
+			frame.putInt(records.length).putInt((int) crc.getValue()).put(records).flip();
+			while (frame.hasRemaining()) {
+				log.write(frame);
+			}
+			log.force(false);
+			group.reset();
+			pending = 0;
+		}
+	}
+
+	/**
+	 * Commits any pending records, writes a new snapshot of the table and empties
+	 * the log. The snapshot is written to a temporary file and moved over the old
+	 * one, so a crash at any point leaves a snapshot and a log that together hold
+	 * every committed update. The directory is forced to disk after the move and
+	 * before the log is emptied, so the emptied log cannot reach the disk ahead
+	 * of the new snapshot. If the crash comes before the log is emptied,
+	 * replaying it onto the new snapshot, which already holds its updates, sets
+	 * every cell it touches to the value it already has.
+	 *
+	 * @throws IOException
+	 *             if the directory cannot be written
+	 */
+	public void compact() throws IOException {
+		flush();
+		writeSnapshot();
+		log.truncate(0);
+		log.position(0);
+		log.force(true);
+		logValues = new ValueDictionary<String>();
+	}
+
+	/**
+	 * Writes the table to SNAPSHOT by way of a temporary file, and forces the
+	 * directory to disk once the file is in place.
+	 */
+	private void writeSnapshot() throws IOException {
+		Path temp = dir.resolve(SNAPSHOT + ".tmp");
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			TableFile.write(table, out);
+			out.force(true);
+		}
+		Files.move(temp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory();
+	}
+
+	/**
+	 * Forces the directory's entries to disk, so that the move of a new snapshot
+	 * survives a crash before the log it replaces is emptied. Windows cannot open
+	 * a directory as a channel, and there the move alone has to do.
+	 */
+	private void syncDirectory() throws IOException {
+		if (System.getProperty("os.name").startsWith("Windows")) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * @return size of the log in bytes, not counting records yet to be committed
+	 */
+	public long logSize() throws IOException {
+		return log.size();
+	}
+
+	/**
+	 * Commits any pending records and closes the log.
+	 *
+	 * @throws IOException
+	 *             if the log cannot be written
+	 */
+	public void close() throws IOException {
+		try {
+			commit();
+		} finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public String getInfo(int row, int col) {
+		return table.getInfo(row, col);
+	}
+
+	public RunCursor<String> rowRuns(int row0, int row1) {
+		return table.rowRuns(row0, row1);
+	}
+
+	public String toString() {
+		return table.toString();
+	}
+
+	public void entireTable(Appendable out) throws IOException {
+		table.entireTable(out);
+	}
+}
@@ -0,0 +1,337 @@
+package compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Table over a table file mapped into memory by TableFile.open. Lookups binary
+ * search the file's block index for the block holding the target cell and
+ * decode runs from there, so the runs are never copied out of the mapped
+ * buffer, and opening a table only reads the value dictionary however large
+ * the table is. Processes mapping the same file share its pages.
+ * 
+ * The file is never written. A read-only table rejects updates; a copy on write
+ * table copies its runs into a CompressedTable on the first update and works
+ * on the copy from then on.
+ *
+ * Until then the table can be read from any number of threads: getInfo keeps a
+ * Decoder per thread, so each thread walks forward from its own last lookup,
+ * and cursors have their own.
+ */
+class MappedTable implements TwoDTable<String> {
+	private final ByteBuffer buffer;
+	private final int numRows;
+	private final int numCols;
+	private final long numCells;
+	private final String[] values; // value of each dictionary code
+	private final long numRuns;
+	private final int indexPos; // file position of the block index
+	private final long numBlocks;
+	private final ThreadLocal<Decoder> finders = ThreadLocal.withInitial(() -> new Decoder()); // used by getInfo
+	private final boolean copyOnWrite;
+	private CompressedTable<String> copy; // set by the first update of a copy on write table
+
+	/**
+	 * Reads the header and trailer of a table file.
+	 *
+	 * @param buffer
+	 *            contents of the file
+	 * @param copyOnWrite
+	 *            whether updates should copy the table rather than be rejected
+	 */
+	MappedTable(ByteBuffer buffer, boolean copyOnWrite) {
+		this.buffer = buffer;
+		this.copyOnWrite = copyOnWrite;
+		numRows = buffer.getInt(4);
+		numCols = buffer.getInt(8);
+		numCells = (long) numRows * numCols;
+
+		values = new String[buffer.getInt(12)];
+		int pos = 16;
+		for (int code = 0; code < values.length; code++) {
+			int length = buffer.getInt(pos);
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(pos + 4 + i);
+			}
+			values[code] = new String(bytes, StandardCharsets.UTF_8);
+			pos += 4 + length;
+		}
+
+		int trailer = buffer.capacity() - TableFile.TRAILER_BYTES;
+		numRuns = buffer.getLong(trailer);
+		indexPos = (int) buffer.getLong(trailer + 8);
+		numBlocks = (numRuns + TableFile.BLOCK_RUNS - 1) / TableFile.BLOCK_RUNS;
+	}
+
+	/**
+	 * Position in the runs, decoding one run at a time from the mapped buffer.
+	 */
+	private class Decoder {
+		long block = -1; // block holding the current run
+		long index; // index of the current run
+		long start; // offset of the first cell of the current run
+		long end; // offset just past the last cell of the current run
+		int code; // dictionary code of the current run
+		int pos; // file position just after the start of the following run
+
+		/**
+		 * Moves to the run covering the cell at offset target, walking forward from
+		 * the current run if it is in the same block and otherwise starting from the
+		 * block found in the index.
+		 */
+		void seek(long target) {
+			if (block < 0 || target < start || (block + 1 < numBlocks && target >= blockStart(block + 1))) {
+				load(findBlock(target));
+			}
+			while (end <= target) {
+				next();
+			}
+		}
+
+		/**
+		 * Moves to the first run of block b.
+		 */
+		void load(long b) {
+			block = b;
+			index = b * TableFile.BLOCK_RUNS;
+			pos = (int) buffer.getLong(indexPos + 16 * (int) b + 8);
+			readVarint(); // delta from the previous block, which the index makes redundant
+			start = blockStart(b);
+			code = (int) readVarint();
+			readEnd();
+		}
+
+		/**
+		 * Moves to the following run.
+		 */
+		void next() {
+			index++;
+			if (index % TableFile.BLOCK_RUNS == 0) {
+				block++;
+			}
+			start = end;
+			code = (int) readVarint();
+			readEnd();
+		}
+
+		/**
+		 * Sets end from the start of the following run, if there is one.
+		 */
+		private void readEnd() {
+			end = (index + 1 < numRuns) ? start + readVarint() : numCells;
+		}
+
+		private long readVarint() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get(pos++);
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+
+	/**
+	 * @return offset of the first cell of block b
+	 */
+	private long blockStart(long b) {
+		return buffer.getLong(indexPos + 16 * (int) b);
+	}
+
+	/**
+	 * @return last block whose first run starts at or before target
+	 */
+	private long findBlock(long target) {
+		long lo = 0;
+		long hi = numBlocks - 1;
+		while (lo < hi) {
+			long mid = (lo + hi + 1) >>> 1;
+			if (blockStart(mid) <= target) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the in-memory copy that updates are made to, creating it from the
+	 * mapped runs the first time. The runs are decoded in one pass into the
+	 * arrays taken by CompressedTable.fromRuns, which appends them to its list
+	 * without searching or merging.
+	 * 
+	 * throws UnsupportedOperationException if the table is read-only
+	 */
+	private CompressedTable<String> writable() {
+		if (copy == null) {
+			if (!copyOnWrite) {
+				throw new UnsupportedOperationException("Mapped table is read-only");
+			}
+			ValueDictionary<String> dictionary = new ValueDictionary<String>(); // gives the file's codes, which are distinct
+			for (String value : values) {
+				dictionary.encode(value);
+			}
+			long[] starts = new long[(int) numRuns];
+			int[] codes = new int[(int) numRuns];
+			Decoder run = new Decoder();
+			run.load(0);
+			for (int i = 0; i < starts.length; i++) {
+				if (i > 0) {
+					run.next();
+				}
+				starts[i] = run.start;
+				codes[i] = run.code;
+			}
+			copy = CompressedTable.fromRuns(numRows, numCols, starts, codes, starts.length, dictionary);
+		}
+		return copy;
+	}
+
+	/**
+	 * @return whether updates have moved the table into memory
+	 */
+	public boolean isCopied() {
+		return copy != null;
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 * 
+	 * throws UnsupportedOperationException if the table is read-only
+	 * 
+	 * @param row: row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, String newInfo) {
+		writable().updateInfo(row, col, newInfo);
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo.
+	 * 
+	 * throws UnsupportedOperationException if the table is read-only
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, String newInfo) {
+		writable().fillRect(row0, col0, row1, col1, newInfo);
+	}
+
+	/**
+	 * Applies each update in order.
+	 * 
+	 * throws UnsupportedOperationException if the table is read-only
+	 */
+	public void applyUpdates(Iterable<CellUpdate<String>> updates) {
+		writable().applyUpdates(updates);
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public String getInfo(int row, int col) {
+		if (copy != null) {
+			return copy.getInfo(row, col);
+		}
+		Decoder finder = finders.get();
+		finder.seek((long) row * numCols + col);
+		return values[finder.code];
+	}
+
+	/**
+	 * @return number of runs stored in the file, which later updates to a copy on
+	 *         write table do not change
+	 */
+	public long numRuns() {
+		return numRuns;
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<String> rowRuns(int row0, int row1) {
+		if (copy != null) {
+			return copy.rowRuns(row0, row1);
+		}
+		return new RunCursor<String>(numRows, numCols) {
+			Decoder run = new Decoder();
+
+			protected void seek(long offset) {
+				run.seek(offset);
+			}
+
+			protected void advance() {
+				run.next();
+			}
+
+			protected long runEnd() {
+				return run.end;
+			}
+
+			protected String runValue() {
+				return values[run.code];
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable
+	 */
+	public String toString() {
+		if (copy != null) {
+			return copy.toString();
+		}
+		StringBuilder ans = new StringBuilder("CurDoublyLinkedList:\n");
+		if (numRuns > 0) {
+			Decoder run = new Decoder();
+			run.load(0);
+			while (true) {
+				RowOrderedPosn pos = new RowOrderedPosn((int) (run.start / numCols), (int) (run.start % numCols),
+						numRows, numCols);
+				ans.append(new Association<RowOrderedPosn, String>(pos, values[run.code]) + "\n");
+				if (run.end == numCells) {
+					break;
+				}
+				run.next();
+			}
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line, in one pass over the runs.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		for (RunCursor<String> run : rowRuns(0, numRows - 1)) {
+			for (int i = 0; i < run.getLength(); i++) {
+				out.append(run.getValue());
+			}
+			if (run.getStartCol() + run.getLength() == numCols) {
+				out.append('\n');
+			}
+		}
+	}
+}
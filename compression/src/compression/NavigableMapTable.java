@@ -0,0 +1,225 @@
+package compression;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Table whose runs are kept in a JDK NavigableMap from each run's starting
+ * RowOrderedPosn to its value, a TreeMap unless another map is supplied.
+ * getInfo is a floorEntry lookup and updates replace the entries between two
+ * positions, so both take O(log runs) time with no index of our own to
+ * maintain. It serves as a baseline for the linked list CompressedTable.
+ *
+ * Neighbouring runs are compared with equals.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class NavigableMapTable<ValueType> implements TwoDTable<ValueType> {
+	private final int numRows;
+	private final int numCols;
+	private final long numCells;
+	private final NavigableMap<RowOrderedPosn, ValueType> runs;
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue, kept in a TreeMap
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public NavigableMapTable(int rows, int cols, ValueType defaultValue) {
+		this(rows, cols, defaultValue, new TreeMap<RowOrderedPosn, ValueType>());
+	}
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue, kept in runs
+	 *
+	 * @pre: runs is empty and orders its keys by RowOrderedPosn.compareTo
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 * @param runs: map to keep the runs in
+	 */
+	public NavigableMapTable(int rows, int cols, ValueType defaultValue, NavigableMap<RowOrderedPosn, ValueType> runs) {
+		numRows = rows;
+		numCols = cols;
+		numCells = (long) rows * cols;
+		this.runs = runs;
+		runs.put(posn(0), defaultValue);
+	}
+
+	/**
+	 * @return position of the cell at the given offset in this table
+	 */
+	private RowOrderedPosn posn(long offset) {
+		return new RowOrderedPosn((int) (offset / numCols), (int) (offset % numCols), numRows, numCols);
+	}
+
+	/**
+	 * @return number of runs currently stored
+	 */
+	public int numRuns() {
+		return runs.size();
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		if (row > (numRows - 1) || col > (numCols - 1)) {
+			return;
+		}
+		long target = (long) row * numCols + col;
+		fill(target, target + 1, newInfo);
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo, replacing the runs of each row of the rectangle (or
+	 * of the whole rectangle, if it spans full rows) at once.
+	 *
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+		if (rect.fullRows()) {
+			fill(rect.from(), rect.to(), newInfo);
+		} else {
+			for (int r = rect.row0; r <= rect.row1; r++) {
+				fill((long) r * numCols + rect.col0, (long) r * numCols + rect.col1 + 1, newInfo);
+			}
+		}
+	}
+
+	/**
+	 * Makes the cells at offsets from (inclusive) to to (exclusive) hold
+	 * newInfo, keeping the runs maximal.
+	 */
+	private void fill(long from, long to, ValueType newInfo) {
+		RowOrderedPosn start = posn(from);
+		RowOrderedPosn next = runs.higherKey(start);
+		if (runs.floorEntry(start).getValue().equals(newInfo) && (next == null || next.offset() >= to)) {
+			return;
+		}
+
+		// keep the cells from to onwards as they were, and drop the runs starting inside the range
+		RowOrderedPosn end = null;
+		if (to < numCells) {
+			end = posn(to);
+			Map.Entry<RowOrderedPosn, ValueType> last = runs.floorEntry(end);
+			if (!last.getKey().equals(end)) {
+				runs.put(end, last.getValue());
+			}
+			runs.subMap(start, false, end, false).clear();
+		} else {
+			runs.tailMap(start, false).clear();
+		}
+		runs.put(start, newInfo);
+
+		// merge with neighbours holding the same value
+		if (end != null && newInfo.equals(runs.get(end))) {
+			runs.remove(end);
+		}
+		if (from > 0 && runs.lowerEntry(start).getValue().equals(newInfo)) {
+			runs.remove(start);
+		}
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		return runs.floorEntry(new RowOrderedPosn(row, col, numRows, numCols)).getValue();
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive, which
+	 * iterates over the map's entries from the first run it reads.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		return new RunCursor<ValueType>(numRows, numCols) {
+			Iterator<Map.Entry<RowOrderedPosn, ValueType>> entries;
+			Map.Entry<RowOrderedPosn, ValueType> run;
+			Map.Entry<RowOrderedPosn, ValueType> following; // run after run, or null if it is the last
+
+			protected void seek(long offset) {
+				entries = runs.tailMap(runs.floorKey(posn(offset)), true).entrySet().iterator();
+				following = entries.next();
+				advance();
+			}
+
+			protected void advance() {
+				run = following;
+				following = entries.hasNext() ? entries.next() : null;
+			}
+
+			protected long runEnd() {
+				return (following == null) ? numCells : following.getKey().offset();
+			}
+
+			protected ValueType runValue() {
+				return run.getValue();
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable
+	 */
+	public String toString() {
+		StringBuilder ans = new StringBuilder("CurDoublyLinkedList:\n");
+		for (Map.Entry<RowOrderedPosn, ValueType> run : runs.entrySet()) {
+			ans.append(new Association<RowOrderedPosn, ValueType>(run.getKey(), run.getValue()) + "\n");
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		for (RunCursor<ValueType> run : rowRuns(0, numRows - 1)) {
+			String value = String.valueOf(run.getValue());
+			for (int i = 0; i < run.getLength(); i++) {
+				out.append(value);
+			}
+			if (run.getStartCol() + run.getLength() == numCols) {
+				out.append('\n');
+			}
+		}
+	}
+}
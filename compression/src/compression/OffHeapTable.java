@@ -0,0 +1,151 @@
+/**
+ * Class representing a compressed 2-dimensional table whose runs are kept
+ * outside the Java heap. Like ArrayRunTable it is a GapBufferTable over each
+ * run's start offset (row * numCols + col) and value code, but the slots are
+ * direct buffers, so a table of any number of runs takes a fixed handful of
+ * objects on the heap (plus its value dictionary) and adds nothing for the
+ * garbage collector to trace.
+ *
+ * The memory of a direct buffer is freed only when the garbage collector
+ * collects the buffer object; nothing here frees it sooner. close() and grow()
+ * just drop the table's references to the buffers they replace, so that
+ * memory stays allocated until a later collection. After close() every
+ * operation throws IllegalStateException.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+package compression;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+class OffHeapTable<ValueType> extends GapBufferTable<ValueType> implements Closeable {
+
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE / Long.BYTES; // largest starts buffer
+
+	private LongBuffer starts; // start offset of each run
+	private IntBuffer codes; // dictionary code of the value of each run
+	private int capacity; // slots in each buffer
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public OffHeapTable(int rows, int cols, ValueType defaultValue) {
+		super(rows, cols);
+		capacity = INITIAL_CAPACITY;
+		starts = allocateStarts(capacity);
+		codes = allocateCodes(capacity);
+		init(defaultValue);
+	}
+
+	private static LongBuffer allocateStarts(int capacity) {
+		return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+	}
+
+	private static IntBuffer allocateCodes(int capacity) {
+		return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * @return bytes of direct memory held by the table
+	 */
+	public long offHeapBytes() {
+		return (long) capacity * (Long.BYTES + Integer.BYTES);
+	}
+
+	/**
+	 * Drops the table's buffers, whose memory is freed when the garbage collector
+	 * next collects them. The table cannot be used afterwards.
+	 */
+	public void close() {
+		starts = null;
+		codes = null;
+	}
+
+	/**
+	 * throws IllegalStateException if the table has been closed
+	 */
+	protected void checkOpen() {
+		if (starts == null) {
+			throw new IllegalStateException("Table is closed");
+		}
+	}
+
+	protected int capacity() {
+		return capacity;
+	}
+
+	protected long start(int slot) {
+		return starts.get(slot);
+	}
+
+	protected int code(int slot) {
+		return codes.get(slot);
+	}
+
+	protected void set(int slot, long start, int code) {
+		starts.put(slot, start);
+		codes.put(slot, code);
+	}
+
+	protected void setCode(int slot, int code) {
+		codes.put(slot, code);
+	}
+
+	protected void copySlots(int from, int to, int count) {
+		LongBuffer startsFrom = starts.duplicate();
+		startsFrom.limit(from + count).position(from);
+		LongBuffer startsTo = starts.duplicate();
+		startsTo.position(to);
+		startsTo.put(startsFrom);
+
+		IntBuffer codesFrom = codes.duplicate();
+		codesFrom.limit(from + count).position(from);
+		IntBuffer codesTo = codes.duplicate();
+		codesTo.position(to);
+		codesTo.put(codesFrom);
+	}
+
+	/**
+	 * Doubles the capacity of the buffers. The old buffers' memory is freed only
+	 * when they are garbage collected.
+	 *
+	 * throws IllegalStateException if the table already holds as many runs as a
+	 * buffer can
+	 */
+	protected int grow(int head, int tail) {
+		if (capacity == MAX_CAPACITY) {
+			throw new IllegalStateException("Table cannot hold more than " + MAX_CAPACITY + " runs");
+		}
+		int newCapacity = (int) Math.min((long) capacity * 2, MAX_CAPACITY);
+		LongBuffer newStarts = allocateStarts(newCapacity);
+		IntBuffer newCodes = allocateCodes(newCapacity);
+
+		starts.limit(head);
+		newStarts.put(starts);
+		starts.limit(capacity).position(capacity - tail);
+		newStarts.position(newCapacity - tail);
+		newStarts.put(starts);
+		newStarts.clear();
+
+		codes.limit(head);
+		newCodes.put(codes);
+		codes.limit(capacity).position(capacity - tail);
+		newCodes.position(newCapacity - tail);
+		newCodes.put(codes);
+		newCodes.clear();
+
+		starts = newStarts;
+		codes = newCodes;
+		capacity = newCapacity;
+		return newCapacity;
+	}
+}
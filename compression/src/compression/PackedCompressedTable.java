@@ -0,0 +1,340 @@
+/** 
+ * Class representing a compressed 2-dimensional table whose runs are kept in a
+ * doubly linked list of packed nodes. Each node records the run's starting
+ * cell as a primitive offset (row * numCols + col) next to the dictionary code
+ * of its value, so a run costs one object rather than a node, an Association
+ * and a RowOrderedPosn, and neighbouring runs are compared as ints.
+ * RowOrderedPosn objects are only created when the table is printed.
+ * 
+ * @param <ValueType> type of value stored in the table
+ */
+package compression;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+class PackedCompressedTable<ValueType> implements TwoDTable<ValueType> {
+
+	/**
+	 * A run of equal values starting at offset start and continuing up to the
+	 * start of the next run (or the end of the table), holding the dictionary
+	 * code of its value.
+	 */
+	private static class Run {
+		long start;
+		int code;
+		Run prev;
+		Run next;
+
+		Run(long start, int code) {
+			this.start = start;
+			this.code = code;
+		}
+	}
+
+	protected int numRows;
+	protected int numCols;
+	protected long numCells; // numRows * numCols
+
+	private Run head; // run starting at offset 0, never removed
+	private Run cursor; // run found by the last operation
+	private int numRuns;
+	private ValueDictionary<ValueType> dictionary = new ValueDictionary<ValueType>();
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue
+	 * 
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public PackedCompressedTable(int rows, int cols, ValueType defaultValue) {
+		numRows = rows;
+		numCols = cols;
+		numCells = (long) rows * cols;
+		head = new Run(0, dictionary.encode(defaultValue));
+		cursor = head;
+		numRuns = 1;
+	}
+
+	/**
+	 * Walks from the cursor to the run covering the cell at offset target and
+	 * leaves the cursor there.
+	 * 
+	 * @return run whose start is the largest one <= target
+	 */
+	private Run find(long target) {
+		Run finger = cursor;
+		while (finger.start > target) {
+			finger = finger.prev;
+		}
+		while (finger.next != null && finger.next.start <= target) {
+			finger = finger.next;
+		}
+		cursor = finger;
+		return finger;
+	}
+
+	/**
+	 * Creates a run right after the given one.
+	 * 
+	 * @return the new run
+	 */
+	private Run insertAfter(Run run, long start, int code) {
+		Run added = new Run(start, code);
+		added.prev = run;
+		added.next = run.next;
+		if (run.next != null) {
+			run.next.prev = added;
+		}
+		run.next = added;
+		numRuns++;
+		return added;
+	}
+
+	/**
+	 * Removes the given run, which must not be the head.
+	 */
+	private void unlink(Run run) {
+		run.prev.next = run.next;
+		if (run.next != null) {
+			run.next.prev = run.prev;
+		}
+		numRuns--;
+	}
+
+	/**
+	 * @return code of value, first dropping the values no run holds any more if
+	 *         the dictionary has grown well past the number of runs
+	 */
+	private int encode(ValueType value) {
+		if (dictionary.isStale(numRuns)) {
+			BitSet used = new BitSet();
+			for (Run run = head; run != null; run = run.next) {
+				used.set(run.code);
+			}
+			dictionary.retain(used);
+		}
+		return dictionary.encode(value);
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo. 
+	 * 
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		if (row > (numRows - 1) || col > (numCols - 1)) {
+			return;
+		}
+
+		long target = (long) row * numCols + col;
+		Run run = find(target);
+		int newCode = encode(newInfo);
+		if (run.code == newCode) {
+			return;
+		}
+		int oldCode = run.code;
+
+		// cells after target keep the old value
+		long end = (run.next == null) ? numCells : run.next.start;
+		if (target + 1 < end) {
+			insertAfter(run, target + 1, oldCode);
+		}
+
+		// give target a run of its own
+		Run cell;
+		if (run.start == target) {
+			run.code = newCode;
+			cell = run;
+		} else {
+			cell = insertAfter(run, target, newCode);
+		}
+
+		// merge with neighbours holding the same value
+		if (cell.next != null && cell.next.code == newCode) {
+			unlink(cell.next);
+		}
+		if (cell.prev != null && cell.prev.code == newCode) {
+			unlink(cell);
+			cell = cell.prev;
+		}
+		cursor = cell;
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo. Each row of the rectangle (or the whole rectangle if
+	 * it spans full rows) becomes one run replacing the runs inside it, and equal
+	 * neighbouring runs are merged in a single pass at the end.
+	 * 
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+
+		int newCode = encode(newInfo);
+		long from = rect.from();
+		long to = rect.to();
+		if (rect.fullRows()) {
+			fillRange(from, to, newCode);
+		} else {
+			for (int r = rect.row0; r <= rect.row1; r++) {
+				fillRange((long) r * numCols + rect.col0, (long) r * numCols + rect.col1 + 1, newCode);
+			}
+		}
+
+		// merge equal neighbours from the run before the rectangle to the run after it
+		Run run = find(from);
+		if (run.prev != null) {
+			run = run.prev;
+		}
+		while (run.next != null && run.next.start <= to) {
+			if (run.next.code == run.code) {
+				unlink(run.next);
+			} else {
+				run = run.next;
+			}
+		}
+		cursor = run;
+	}
+
+	/**
+	 * Makes the cells at offsets from (inclusive) to to (exclusive) a single run
+	 * holding the value with code newCode, without merging it with its
+	 * neighbours.
+	 */
+	private void fillRange(long from, long to, int newCode) {
+		// keep the cells from to onwards as they were
+		if (to < numCells) {
+			Run last = find(to);
+			if (last.start != to) {
+				insertAfter(last, to, last.code);
+			}
+		}
+
+		Run run = find(from);
+		if (run.start == from) {
+			run.code = newCode;
+		} else {
+			run = insertAfter(run, from, newCode);
+		}
+
+		// drop the runs now covered by the new one
+		while (run.next != null && run.next.start < to) {
+			unlink(run.next);
+		}
+		cursor = run;
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 * 
+	 * @pre: (row,col) is legal cell in table
+	 * 
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 * 
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		return dictionary.decode(find((long) row * numCols + col).code);
+	}
+
+	/**
+	 * @return number of runs currently stored
+	 */
+	public int numRuns() {
+		return numRuns;
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive.
+	 * 
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		return new RunCursor<ValueType>(numRows, numCols) {
+			Run run;
+
+			protected void seek(long offset) {
+				run = find(offset);
+			}
+
+			protected void advance() {
+				run = run.next;
+			}
+
+			protected long runEnd() {
+				return (run.next == null) ? numCells : run.next.start;
+			}
+
+			protected ValueType runValue() {
+				return dictionary.decode(run.code);
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return dictionary of the values stored in the table
+	 */
+	public ValueDictionary<ValueType> getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @return description of the value dictionary and the memory it saves
+	 */
+	public String dictionaryStats() {
+		return dictionary.stats(numRuns);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable
+	 */
+	public String toString() {
+		StringBuilder ans = new StringBuilder("CurDoublyLinkedList:\n");
+		for (Run run = head; run != null; run = run.next) {
+			RowOrderedPosn pos = new RowOrderedPosn((int) (run.start / numCols), (int) (run.start % numCols),
+					numRows, numCols);
+			ans.append(new Association<RowOrderedPosn, ValueType>(pos, dictionary.decode(run.code)) + "\n");
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line, in one pass over the runs.
+	 * 
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		int col = 0;
+		for (Run run = head; run != null; run = run.next) {
+			String value = String.valueOf(dictionary.decode(run.code));
+			long end = (run.next == null) ? numCells : run.next.start;
+			for (long pos = run.start; pos < end; pos++) {
+				out.append(value);
+				if (++col == numCols) {
+					out.append('\n');
+					col = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package compression;
+
+import java.io.IOException;
+
+/**
+ * Table whose runs are kept in a persistent AVL tree keyed by each run's
+ * starting offset (row * numCols + col). Nodes are never changed once built:
+ * an update copies only the nodes on the paths to the runs it changes and
+ * shares the rest of the tree, so snapshot() just hands out the current root.
+ * A snapshot is a read-only table that costs O(1) to take, can be read from
+ * any thread without locking while this table goes on being updated, and
+ * holds on to memory only for the nodes copied by updates made since it was
+ * taken.
+ *
+ * The table itself must only be updated from one thread at a time.
+ * Neighbouring runs are compared with equals.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class PersistentTable<ValueType> implements TwoDTable<ValueType> {
+
+	/**
+	 * Immutable tree node for the run starting at offset start.
+	 */
+	private static final class Node<ValueType> {
+		final long start;
+		final ValueType value;
+		final Node<ValueType> left, right;
+		final int height;
+
+		Node(long start, ValueType value, Node<ValueType> left, Node<ValueType> right) {
+			this.start = start;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			height = 1 + Math.max(height(left), height(right));
+		}
+	}
+
+	private final int numRows;
+	private final int numCols;
+	private final long numCells;
+	private final boolean readOnly;
+	private volatile Node<ValueType> root;
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public PersistentTable(int rows, int cols, ValueType defaultValue) {
+		this(rows, cols, false, new Node<ValueType>(0, defaultValue, null, null));
+	}
+
+	private PersistentTable(int rows, int cols, boolean readOnly, Node<ValueType> root) {
+		numRows = rows;
+		numCols = cols;
+		numCells = (long) rows * cols;
+		this.readOnly = readOnly;
+		this.root = root;
+	}
+
+	/**
+	 * @return read-only table holding the current contents of this one, unaffected
+	 *         by later updates
+	 */
+	public PersistentTable<ValueType> snapshot() {
+		return new PersistentTable<ValueType>(numRows, numCols, true, root);
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 *
+	 * throws UnsupportedOperationException if this is a snapshot
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		if (row > (numRows - 1) || col > (numCols - 1)) {
+			return;
+		}
+		long target = (long) row * numCols + col;
+		fill(target, target + 1, newInfo);
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo, replacing the runs of each row of the rectangle (or
+	 * of the whole rectangle, if it spans full rows) at once.
+	 *
+	 * throws UnsupportedOperationException if this is a snapshot
+	 *
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+		if (rect.fullRows()) {
+			fill(rect.from(), rect.to(), newInfo);
+		} else {
+			for (int r = rect.row0; r <= rect.row1; r++) {
+				fill((long) r * numCols + rect.col0, (long) r * numCols + rect.col1 + 1, newInfo);
+			}
+		}
+	}
+
+	/**
+	 * Makes the cells at offsets from (inclusive) to to (exclusive) hold
+	 * newInfo, keeping the runs maximal.
+	 */
+	private void fill(long from, long to, ValueType newInfo) {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Snapshots are read-only");
+		}
+		Node<ValueType> tree = root;
+		Node<ValueType> run = floor(tree, from);
+		Node<ValueType> next = higher(tree, from);
+		if (run.value.equals(newInfo) && (next == null || next.start >= to)) {
+			return;
+		}
+
+		// keep the cells from to onwards as they were
+		if (to < numCells) {
+			Node<ValueType> last = floor(tree, to);
+			if (last.start != to) {
+				tree = put(tree, to, last.value);
+			}
+		}
+		// drop the runs starting inside the range and start one at from
+		for (Node<ValueType> inside = higher(tree, from); inside != null && inside.start < to; inside = higher(tree, from)) {
+			tree = remove(tree, inside.start);
+		}
+		tree = put(tree, from, newInfo);
+
+		// merge with neighbours holding the same value
+		if (to < numCells && floor(tree, to).value.equals(newInfo)) {
+			tree = remove(tree, to);
+		}
+		if (from > 0 && floor(tree, from - 1).value.equals(newInfo)) {
+			tree = remove(tree, from);
+		}
+		root = tree;
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		return floor(root, (long) row * numCols + col).value;
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive, as they
+	 * were when the cursor was created.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		final Node<ValueType> tree = root;
+		return new RunCursor<ValueType>(numRows, numCols) {
+			Node<ValueType> run;
+			long end;
+
+			protected void seek(long offset) {
+				run = floor(tree, offset);
+				readEnd();
+			}
+
+			protected void advance() {
+				run = higher(tree, run.start);
+				readEnd();
+			}
+
+			private void readEnd() {
+				Node<ValueType> next = higher(tree, run.start);
+				end = (next == null) ? numCells : next.start;
+			}
+
+			protected long runEnd() {
+				return end;
+			}
+
+			protected ValueType runValue() {
+				return run.value;
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable
+	 */
+	public String toString() {
+		StringBuilder ans = new StringBuilder();
+		try {
+			TableExport.writeRuns(this, ans);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // StringBuilder does not throw
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		for (RunCursor<ValueType> run : rowRuns(0, numRows - 1)) {
+			String value = String.valueOf(run.getValue());
+			for (int i = 0; i < run.getLength(); i++) {
+				out.append(value);
+			}
+			if (run.getStartCol() + run.getLength() == numCols) {
+				out.append('\n');
+			}
+		}
+	}
+
+	// persistent AVL tree operations; each returns the root of the new tree
+
+	private static int height(Node<?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * @return node with the largest start <= target, or null if none
+	 */
+	private static <V> Node<V> floor(Node<V> node, long target) {
+		Node<V> best = null;
+		while (node != null) {
+			if (node.start <= target) {
+				best = node;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return node with the smallest start > target, or null if none
+	 */
+	private static <V> Node<V> higher(Node<V> node, long target) {
+		Node<V> best = null;
+		while (node != null) {
+			if (node.start > target) {
+				best = node;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return tree with the run at start set to value, added if there is none
+	 */
+	private static <V> Node<V> put(Node<V> node, long start, V value) {
+		if (node == null) {
+			return new Node<V>(start, value, null, null);
+		} else if (start < node.start) {
+			return balance(node.start, node.value, put(node.left, start, value), node.right);
+		} else if (start > node.start) {
+			return balance(node.start, node.value, node.left, put(node.right, start, value));
+		}
+		return new Node<V>(start, value, node.left, node.right);
+	}
+
+	/**
+	 * @return tree without the run at start
+	 */
+	private static <V> Node<V> remove(Node<V> node, long start) {
+		if (node == null) {
+			return null;
+		} else if (start < node.start) {
+			return balance(node.start, node.value, remove(node.left, start), node.right);
+		} else if (start > node.start) {
+			return balance(node.start, node.value, node.left, remove(node.right, start));
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		}
+		Node<V> successor = node.right;
+		while (successor.left != null) {
+			successor = successor.left;
+		}
+		return balance(successor.start, successor.value, node.left, remove(node.right, successor.start));
+	}
+
+	/**
+	 * @return new node for (start, value) over left and right, rotated so the
+	 *         subtree heights differ by at most one
+	 */
+	private static <V> Node<V> balance(long start, V value, Node<V> left, Node<V> right) {
+		if (height(left) > height(right) + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return new Node<V>(left.start, left.value, left.left, new Node<V>(start, value, left.right, right));
+			}
+			Node<V> mid = left.right;
+			return new Node<V>(mid.start, mid.value, new Node<V>(left.start, left.value, left.left, mid.left),
+					new Node<V>(start, value, mid.right, right));
+		} else if (height(right) > height(left) + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return new Node<V>(right.start, right.value, new Node<V>(start, value, left, right.left), right.right);
+			}
+			Node<V> mid = right.left;
+			return new Node<V>(mid.start, mid.value, new Node<V>(start, value, left, mid.left),
+					new Node<V>(right.start, right.value, mid.right, right.right));
+		}
+		return new Node<V>(start, value, left, right);
+	}
+}
@@ -0,0 +1,57 @@
+package compression;
+
+// The part of a fillRect rectangle that lies inside a table, shared by the engines' fillRect
+
+final class Rect {
+	final int row0, col0; // top left cell
+	final int row1, col1; // bottom right cell, inclusive
+	private final int numCols; // columns in the table
+
+	private Rect(int row0, int col0, int row1, int col1, int numCols) {
+		this.row0 = row0;
+		this.col0 = col0;
+		this.row1 = row1;
+		this.col1 = col1;
+		this.numCols = numCols;
+	}
+
+	/**
+	 * Clips the rectangle from (row0, col0) to (row1, col1), inclusive, to a
+	 * table of numRows x numCols.
+	 *
+	 * @return the cells of the rectangle inside the table, or null if there are
+	 *         none
+	 */
+	static Rect clip(int row0, int col0, int row1, int col1, int numRows, int numCols) {
+		row0 = Math.max(row0, 0);
+		col0 = Math.max(col0, 0);
+		row1 = Math.min(row1, numRows - 1);
+		col1 = Math.min(col1, numCols - 1);
+		if (row0 > row1 || col0 > col1) {
+			return null;
+		}
+		return new Rect(row0, col0, row1, col1, numCols);
+	}
+
+	/**
+	 * @return offset (row * numCols + col) of the top left cell
+	 */
+	long from() {
+		return (long) row0 * numCols + col0;
+	}
+
+	/**
+	 * @return offset just past the bottom right cell
+	 */
+	long to() {
+		return (long) row1 * numCols + col1 + 1;
+	}
+
+	/**
+	 * @return whether the rectangle spans whole rows, so its cells are one
+	 *         range of offsets from from() to to()
+	 */
+	boolean fullRows() {
+		return col0 == 0 && col1 == numCols - 1;
+	}
+}
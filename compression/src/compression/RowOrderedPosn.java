@@ -1,8 +1,10 @@
 package compression;
 
-// Class of 2-Dimensional table subscripts which are ordered first by row and then column
+// Class of 2-Dimensional table subscripts which are ordered first by row and then column.
+// Positions are Comparable in that order and hash consistently with equals, so they can
+// key a TreeMap, ConcurrentSkipListMap or HashMap.
 
-class RowOrderedPosn{
+class RowOrderedPosn implements Comparable<RowOrderedPosn>{
 	private int row, col;			// row and column of entry
 	private int numRows, numCols; 	// total number of rows and columns in table
 
@@ -34,6 +36,14 @@ class RowOrderedPosn{
 		return col;
 	}
 	
+	/**
+	 * @return index of this position when scanning from left to right across
+	 * successive rows, i.e. row * numCols + col
+	 */
+	public long offset(){
+		return (long) row * numCols + col;
+	}
+	
 
 	
 	/**
@@ -62,6 +72,16 @@ class RowOrderedPosn{
 		return (row < other.getRow()) || (row == other.getRow() && col < other.getCol());
 	}
 	
+	/**
+	 *  @pre: other != null
+	 * @param other  position to be compared with this one
+	 * @return negative, zero or positive as this position comes before, at or after other
+	 */
+	public int compareTo(RowOrderedPosn other){
+		if (row != other.getRow()) return Integer.compare(row, other.getRow());
+		return Integer.compare(col, other.getCol());
+	}
+	
 	/**
 	 *  @pre: other != null
 	 * @param other  position to be compared with this one
@@ -84,6 +104,18 @@ class RowOrderedPosn{
 		}
 	}
 		
+	/**
+	 * @return hash of row and column, packed into a long and mixed with the
+	 *         MurmurHash3 64-bit finalizer so that every bit of each affects
+	 *         every bit of the hash
+	 */
+	public int hashCode(){
+		long h = ((long) row << 32) | (col & 0xFFFFFFFFL);
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (h ^ (h >>> 33));
+	}
+		
 	/**
 	 *  @return description of position
 	 */
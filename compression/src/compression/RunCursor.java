@@ -0,0 +1,153 @@
+package compression;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor over the runs of a range of rows in a table, one row at a time. Each
+ * call to next() moves the cursor to the next run within a row and returns the
+ * cursor itself, whose getters then describe that run as (row, startCol,
+ * length, value). A run of the table that continues onto following rows is
+ * reported once for each row it covers.
+ * 
+ * No objects are created while iterating, and reset() points the same cursor
+ * at another range of rows, so a caller that keeps its cursor can read rows
+ * without allocating. The table must not be updated while a cursor is in use.
+ * 
+ * Engines supply the underlying runs by implementing seek, advance, runEnd and
+ * runValue.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+abstract class RunCursor<ValueType> implements Iterator<RunCursor<ValueType>>, Iterable<RunCursor<ValueType>> {
+	protected final int numRows, numCols; // size of the table
+
+	private long pos; // offset of the next cell to report
+	private long endPos; // offset just past the last cell to report
+	private int row, startCol, length; // run last returned by next
+	private ValueType value;
+
+	/**
+	 * Constructor for a cursor over a table with numRows rows and numCols columns.
+	 * Call reset before iterating.
+	 */
+	protected RunCursor(int numRows, int numCols) {
+		this.numRows = numRows;
+		this.numCols = numCols;
+	}
+
+	/**
+	 * Points the cursor at the runs of rows row0 through row1, inclusive. Rows
+	 * outside the table are ignored.
+	 * 
+	 * @param row0
+	 *            first row to report
+	 * @param row1
+	 *            last row to report
+	 * @return this cursor
+	 */
+	public RunCursor<ValueType> reset(int row0, int row1) {
+		row0 = Math.max(row0, 0);
+		row1 = Math.min(row1, numRows - 1);
+		pos = (long) row0 * numCols;
+		endPos = (long) (row1 + 1) * numCols;
+		if (pos < endPos) {
+			seek(pos);
+		}
+		return this;
+	}
+
+	/**
+	 * @return whether there is another run in the range
+	 */
+	public boolean hasNext() {
+		return pos < endPos;
+	}
+
+	/**
+	 * Moves to the next run in the range.
+	 * 
+	 * @pre: hasNext()
+	 * 
+	 *       throws NoSuchElementException if there are no more runs
+	 * 
+	 * @return this cursor, now describing the run
+	 */
+	public RunCursor<ValueType> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more runs in range");
+		}
+		while (runEnd() <= pos) {
+			advance();
+		}
+		row = (int) (pos / numCols);
+		startCol = (int) (pos % numCols);
+		long stop = Math.min(runEnd(), (long) (row + 1) * numCols);
+		length = (int) (stop - pos);
+		value = runValue();
+		pos = stop;
+		return this;
+	}
+
+	/**
+	 * @return this cursor, so it can be used in a for-each loop
+	 */
+	public Iterator<RunCursor<ValueType>> iterator() {
+		return this;
+	}
+
+	/**
+	 * @return row of the current run
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return column at which the current run starts in its row
+	 */
+	public int getStartCol() {
+		return startCol;
+	}
+
+	/**
+	 * @return number of cells in the current run within its row
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return value of the current run
+	 */
+	public ValueType getValue() {
+		return value;
+	}
+
+	/**
+	 * @return description of the current run
+	 */
+	public String toString() {
+		return "Run: (" + row + "," + startCol + ") x" + length + "=" + value;
+	}
+
+	/**
+	 * Positions the underlying run on the run covering the cell at offset.
+	 */
+	protected abstract void seek(long offset);
+
+	/**
+	 * Moves the underlying run on to the following run of the table.
+	 */
+	protected abstract void advance();
+
+	/**
+	 * @return offset just past the last cell of the underlying run
+	 */
+	protected abstract long runEnd();
+
+	/**
+	 * @return value of the underlying run
+	 */
+	protected abstract ValueType runValue();
+}
@@ -0,0 +1,143 @@
+package compression;
+
+import java.util.Random;
+
+/**
+ * A skip list mapping long keys to values, used to jump straight to the run
+ * covering a cell instead of walking the run list. Each entry is promoted to
+ * the next level with probability 1/2, giving expected O(log n) searches,
+ * insertions and removals.
+ *
+ * @param <V> type of value stored under each key
+ */
+class SkipListIndex<V> {
+	private static final int MAX_LEVEL = 32;
+
+	/**
+	 * A tower in the skip list; forward[i] is the next tower on level i.
+	 */
+	private static class SkipNode<V> {
+		long key;
+		V value;
+		SkipNode<V>[] forward;
+
+		@SuppressWarnings("unchecked")
+		SkipNode(long key, V value, int height) {
+			this.key = key;
+			this.value = value;
+			forward = (SkipNode<V>[]) new SkipNode<?>[height];
+		}
+	}
+
+	private final SkipNode<V> head = new SkipNode<V>(Long.MIN_VALUE, null, MAX_LEVEL);
+	private final Random random = new Random();
+	private int level = 1; // number of levels currently in use
+	private int n; // number of keys
+
+	/**
+	 * @return number of keys in the index
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * @param key
+	 *            key to search for
+	 * @return value stored under the largest key <= key, or null if there is none
+	 */
+	public V floor(long key) {
+		SkipNode<V> finger = head;
+		for (int i = level - 1; i >= 0; i--) {
+			while (finger.forward[i] != null && finger.forward[i].key <= key) {
+				finger = finger.forward[i];
+			}
+		}
+		return finger.value;
+	}
+
+	/**
+	 * Associates value with key, replacing any previous value for key.
+	 * 
+	 * @param key
+	 *            key to store under
+	 * @param value
+	 *            value to store
+	 */
+	@SuppressWarnings("unchecked")
+	public void put(long key, V value) {
+		SkipNode<V>[] update = (SkipNode<V>[]) new SkipNode<?>[MAX_LEVEL];
+		SkipNode<V> finger = head;
+		for (int i = level - 1; i >= 0; i--) {
+			while (finger.forward[i] != null && finger.forward[i].key < key) {
+				finger = finger.forward[i];
+			}
+			update[i] = finger;
+		}
+		if (finger.forward[0] != null && finger.forward[0].key == key) {
+			finger.forward[0].value = value;
+			return;
+		}
+
+		int height = randomHeight();
+		for (int i = level; i < height; i++) {
+			update[i] = head;
+		}
+		level = Math.max(level, height);
+
+		SkipNode<V> added = new SkipNode<V>(key, value, height);
+		for (int i = 0; i < height; i++) {
+			added.forward[i] = update[i].forward[i];
+			update[i].forward[i] = added;
+		}
+		n++;
+	}
+
+	/**
+	 * Removes key from the index if present.
+	 * 
+	 * @param key
+	 *            key to remove
+	 */
+	public void remove(long key) {
+		SkipNode<V> finger = head;
+		SkipNode<V> found = null;
+		for (int i = level - 1; i >= 0; i--) {
+			while (finger.forward[i] != null && finger.forward[i].key < key) {
+				finger = finger.forward[i];
+			}
+			if (finger.forward[i] != null && finger.forward[i].key == key) {
+				found = finger.forward[i];
+				finger.forward[i] = found.forward[i];
+			}
+		}
+		if (found != null) {
+			n--;
+			while (level > 1 && head.forward[level - 1] == null) {
+				level--;
+			}
+		}
+	}
+
+	/**
+	 * remove all keys from the index
+	 */
+	public void clear() {
+		for (int i = 0; i < MAX_LEVEL; i++) {
+			head.forward[i] = null;
+		}
+		level = 1;
+		n = 0;
+	}
+
+	/**
+	 * @return height for a new tower, 1 with probability 1/2, 2 with 1/4, ...
+	 */
+	private int randomHeight() {
+		int height = 1;
+		while (height < MAX_LEVEL && random.nextBoolean()) {
+			height++;
+		}
+		return height;
+	}
+}
@@ -0,0 +1,211 @@
+package compression;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table split into horizontal stripes of stripeRows rows, each held in its own
+ * ConcurrentCompressedTable with its own lock, so updates to rows in different
+ * stripes proceed in parallel and readers only contend with writers to the
+ * same stripe. Runs are cut at stripe boundaries; rowRuns and toString stitch
+ * the stripes back together, and toString merges runs that continue across a
+ * boundary so its output matches CompressedTable's.
+ *
+ * Each update is atomic within its stripe. fillRect and applyUpdates spanning
+ * several stripes update one stripe at a time, so a reader may see some
+ * stripes updated and others not yet.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class StripedTable<ValueType> implements TwoDTable<ValueType> {
+	private final int numRows;
+	private final int numCols;
+	private final int stripeRows; // rows per stripe; the last stripe may have fewer
+	private final List<ConcurrentCompressedTable<ValueType>> stripes = new ArrayList<ConcurrentCompressedTable<ValueType>>();
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue, with four stripes per available processor
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 */
+	public StripedTable(int rows, int cols, ValueType defaultValue) {
+		this(rows, cols, defaultValue,
+				Math.max(1, (rows + 4 * Runtime.getRuntime().availableProcessors() - 1)
+						/ (4 * Runtime.getRuntime().availableProcessors())));
+	}
+
+	/**
+	 * Constructor for table of size rows x cols, all of whose values are initially
+	 * set to defaultValue, with stripes of stripeRows rows
+	 *
+	 * @param rows: # of rows in table
+	 * @param cols: # of columns in table
+	 * @param defaultValue: initial value of all entries in table
+	 * @param stripeRows: # of rows in each stripe
+	 */
+	public StripedTable(int rows, int cols, ValueType defaultValue, int stripeRows) {
+		numRows = rows;
+		numCols = cols;
+		this.stripeRows = stripeRows;
+		for (int row = 0; row < rows; row += stripeRows) {
+			stripes.add(new ConcurrentCompressedTable<ValueType>(Math.min(stripeRows, rows - row), cols, defaultValue));
+		}
+	}
+
+	/**
+	 * @return stripe holding row
+	 */
+	private ConcurrentCompressedTable<ValueType> stripe(int row) {
+		return stripes.get(row / stripeRows);
+	}
+
+	/**
+	 * Given a legal (row, col) cell in the table, update its value to newInfo.
+	 *
+	 * @param row:row of cell to be updated
+	 * @param col: column of cell to be update
+	 * @param newInfo: new value to place in cell (row, col)
+	 */
+	public void updateInfo(int row, int col, ValueType newInfo) {
+		if (row > (numRows - 1) || col > (numCols - 1)) {
+			return;
+		}
+		stripe(row).updateInfo(row % stripeRows, col, newInfo);
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo, filling the part of the rectangle in each stripe it
+	 * crosses with one fillRect.
+	 *
+	 * @param row0: top row of rectangle
+	 * @param col0: left column of rectangle
+	 * @param row1: bottom row of rectangle
+	 * @param col1: right column of rectangle
+	 * @param newInfo: new value to place in the rectangle
+	 */
+	public void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		Rect rect = Rect.clip(row0, col0, row1, col1, numRows, numCols);
+		if (rect == null) {
+			return;
+		}
+		for (int row = rect.row0; row <= rect.row1; row = (row / stripeRows + 1) * stripeRows) {
+			int base = row / stripeRows * stripeRows;
+			stripe(row).fillRect(row - base, rect.col0, Math.min(rect.row1, base + stripeRows - 1) - base, rect.col1,
+					newInfo);
+		}
+	}
+
+	/**
+	 * Applies a batch of updates, passing each stripe the updates to its rows as
+	 * one batch, in their original order.
+	 *
+	 * @param updates: updates to apply
+	 */
+	public void applyUpdates(Iterable<CellUpdate<ValueType>> updates) {
+		List<List<CellUpdate<ValueType>>> batches = new ArrayList<List<CellUpdate<ValueType>>>();
+		for (int i = 0; i < stripes.size(); i++) {
+			batches.add(new ArrayList<CellUpdate<ValueType>>());
+		}
+		for (CellUpdate<ValueType> update : updates) {
+			int row = update.getRow();
+			if (row <= numRows - 1 && update.getCol() <= numCols - 1) {
+				batches.get(row / stripeRows)
+						.add(new CellUpdate<ValueType>(row % stripeRows, update.getCol(), update.getValue()));
+			}
+		}
+		for (int i = 0; i < stripes.size(); i++) {
+			if (!batches.get(i).isEmpty()) {
+				stripes.get(i).applyUpdates(batches.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns contents of specified cell
+	 *
+	 * @pre: (row,col) is legal cell in table
+	 *
+	 * @param row: row of cell to be queried
+	 * @param col: column of cell to be queried
+	 *
+	 * @return value stored in (row, col) cell of table
+	 */
+	public ValueType getInfo(int row, int col) {
+		return stripe(row).getInfo(row % stripeRows, col);
+	}
+
+	/**
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive, reading
+	 * each stripe through its own cursor.
+	 *
+	 * @param row0: first row to read
+	 * @param row1: last row to read
+	 * @return cursor over the runs of those rows
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1) {
+		return new RunCursor<ValueType>(numRows, numCols) {
+			int stripe; // stripe being read
+			RunCursor<ValueType> runs; // cursor over the rest of that stripe
+			long end; // offset just past the run last read from runs
+			ValueType value;
+
+			protected void seek(long offset) {
+				int row = (int) (offset / numCols);
+				stripe = row / stripeRows;
+				runs = stripes.get(stripe).rowRuns(row % stripeRows, stripeRows - 1);
+				advance();
+			}
+
+			protected void advance() {
+				if (!runs.hasNext()) {
+					stripe++;
+					runs = stripes.get(stripe).rowRuns(0, stripeRows - 1);
+				}
+				RunCursor<ValueType> run = runs.next();
+				end = (long) (stripe * stripeRows + run.getRow()) * numCols + run.getStartCol() + run.getLength();
+				value = run.getValue();
+			}
+
+			protected long runEnd() {
+				return end;
+			}
+
+			protected ValueType runValue() {
+				return value;
+			}
+		}.reset(row0, row1);
+	}
+
+	/**
+	 * @return succinct description of contents of table, in the same format as
+	 *         CompressedTable, with runs that continue across stripes joined
+	 */
+	public String toString() {
+		StringBuilder ans = new StringBuilder();
+		try {
+			TableExport.writeRuns(this, ans);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // StringBuilder does not throw
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the table to out a row per line, one stripe after another.
+	 *
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public void entireTable(Appendable out) throws IOException {
+		for (ConcurrentCompressedTable<ValueType> stripe : stripes) {
+			stripe.entireTable(out);
+		}
+	}
+}
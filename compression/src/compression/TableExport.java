@@ -0,0 +1,82 @@
+package compression;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the runs of a table as text, in the same format as
+ * CompressedTable.toString(), one run at a time. Output goes through a buffer
+ * of BUFFER_SIZE characters rather than being built up in a String, so
+ * exporting a table takes time linear in its runs and memory independent of
+ * them. TableFile.write exports the runs in binary the same way.
+ */
+class TableExport {
+	static final int BUFFER_SIZE = 1 << 16; // characters buffered between table and destination
+
+	private TableExport() {
+	}
+
+	/**
+	 * Writes the runs of table to out as UTF-8 text. The stream is flushed but
+	 * left open.
+	 *
+	 * @param table
+	 *            table to export
+	 * @param out
+	 *            destination
+	 * @throws IOException
+	 *             if the stream fails
+	 */
+	public static void writeRuns(TwoDTable<?> table, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+		writeRuns(table, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the runs of table to channel as UTF-8 text. The channel is left
+	 * open.
+	 *
+	 * @param table
+	 *            table to export
+	 * @param channel
+	 *            destination
+	 * @throws IOException
+	 *             if the channel fails
+	 */
+	public static void writeRuns(TwoDTable<?> table, WritableByteChannel channel) throws IOException {
+		writeRuns(table, Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Writes the runs of table to out, joining the pieces its row cursor splits
+	 * at the end of each row back into the table's runs.
+	 *
+	 * @param table
+	 *            table to export
+	 * @param out
+	 *            destination
+	 * @throws IOException
+	 *             if out fails
+	 */
+	public static void writeRuns(TwoDTable<?> table, Appendable out) throws IOException {
+		out.append("CurDoublyLinkedList:\n");
+		Object prev = null;
+		for (RunCursor<?> run : table.rowRuns(0, Integer.MAX_VALUE)) {
+			Object value = run.getValue();
+			if (prev != null && prev.equals(value)) {
+				continue;
+			}
+			out.append("<Association: Position: (").append(String.valueOf(run.getRow())).append(',')
+					.append(String.valueOf(run.getStartCol())).append(")=").append(String.valueOf(value))
+					.append(">\n");
+			prev = value;
+		}
+	}
+}
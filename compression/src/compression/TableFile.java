@@ -0,0 +1,209 @@
+package compression;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary file format for a table. All fixed-width numbers are big-endian.
+ *
+ * <pre>
+ * header:  int MAGIC, int numRows, int numCols,
+ *          int dictionary size, then for each value: int length, UTF-8 bytes
+ * runs:    for each run: varint (start - previous start), varint value code
+ * index:   for every BLOCK_RUNS-th run: long start, long file position of the run
+ * trailer: long number of runs, long file position of the index
+ * </pre>
+ *
+ * Runs are maximal, so no two neighbouring runs share a code. The block index
+ * lets a reader find the run covering a cell by binary searching the index and
+ * decoding at most BLOCK_RUNS runs, without reading the rest of the file.
+ * Values are stored as strings (String.valueOf for non-String tables).
+ */
+class TableFile {
+	static final int MAGIC = 0x43544231; // "CTB1"
+	static final int BLOCK_RUNS = 64; // runs per block index entry
+	static final int TRAILER_BYTES = 16;
+	static final int BUFFER_SIZE = 1 << 16; // bytes buffered between table and destination
+
+	private TableFile() {
+	}
+
+	/**
+	 * Writes the contents of table to file, replacing anything already there.
+	 *
+	 * @param table
+	 *            table to write
+	 * @param file
+	 *            destination file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(TwoDTable<?> table, Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			write(table, out);
+		}
+	}
+
+	/**
+	 * Writes the contents of table to channel in the same format, through a
+	 * buffer of BUFFER_SIZE bytes. The channel is left open.
+	 *
+	 * @param table
+	 *            table to write
+	 * @param channel
+	 *            destination
+	 * @throws IOException
+	 *             if the channel fails
+	 */
+	public static void write(TwoDTable<?> table, WritableByteChannel channel) throws IOException {
+		write(table, Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Writes the contents of table to out in the same format, through a buffer of
+	 * BUFFER_SIZE bytes. The runs are read in a single pass, encoding them into
+	 * memory (a few bytes per run) while the dictionary is built, and only then
+	 * is anything written, so the dictionary and the runs always agree and a
+	 * table too large to map fails before any output. A table being updated
+	 * from other threads should be written from a snapshot, so that the pass
+	 * sees one state of it. The stream is flushed but left open.
+	 *
+	 * @param table
+	 *            table to write
+	 * @param stream
+	 *            destination
+	 * @throws IOException
+	 *             if the stream fails or the encoded table would not fit in 2GB
+	 */
+	public static void write(TwoDTable<?> table, OutputStream stream) throws IOException {
+		RunCursor<?> runs = table.rowRuns(0, Integer.MAX_VALUE);
+		int numRows = runs.numRows;
+		int numCols = runs.numCols;
+
+		// one pass: the runs, joining pieces the cursor split at row ends, with the
+		// index holding positions from the start of the runs
+		ValueDictionary<String> dictionary = new ValueDictionary<String>();
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream(BUFFER_SIZE);
+		long headerBytes = 4 * Integer.BYTES; // MAGIC, numRows, numCols, dictionary size
+		long[] index = new long[16];
+		long numRuns = 0;
+		long prevStart = 0;
+		int prevCode = -1;
+		for (RunCursor<?> run : runs) {
+			String value = String.valueOf(run.getValue());
+			int known = dictionary.size();
+			int code = dictionary.encode(value);
+			if (code == known) {
+				headerBytes += Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+			}
+			if (code == prevCode) {
+				continue;
+			}
+			long start = (long) run.getRow() * numCols + run.getStartCol();
+			if (numRuns % BLOCK_RUNS == 0) {
+				int block = (int) (numRuns / BLOCK_RUNS);
+				if (2 * block + 2 > index.length) {
+					index = Arrays.copyOf(index, 2 * index.length);
+				}
+				index[2 * block] = start;
+				index[2 * block + 1] = encoded.size();
+				if (headerBytes + encoded.size() >= Integer.MAX_VALUE) {
+					throw new IOException("Table is too large to map");
+				}
+			}
+			writeVarint(encoded, start - prevStart);
+			writeVarint(encoded, code);
+			prevStart = start;
+			prevCode = code;
+			numRuns++;
+		}
+		long blocks = (numRuns + BLOCK_RUNS - 1) / BLOCK_RUNS;
+		long indexPos = headerBytes + encoded.size();
+		if (indexPos + 2 * Long.BYTES * blocks + TRAILER_BYTES >= Integer.MAX_VALUE) {
+			throw new IOException("Table is too large to map");
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+		out.writeInt(MAGIC);
+		out.writeInt(numRows);
+		out.writeInt(numCols);
+		out.writeInt(dictionary.size());
+		for (int code = 0; code < dictionary.size(); code++) {
+			byte[] bytes = dictionary.decode(code).getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		encoded.writeTo(out);
+		for (int block = 0; block < blocks; block++) {
+			out.writeLong(index[2 * block]);
+			out.writeLong(headerBytes + index[2 * block + 1]);
+		}
+		out.writeLong(numRuns);
+		out.writeLong(indexPos);
+		out.flush();
+	}
+
+	/**
+	 * Maps file into memory and returns a read-only table over it. Only the
+	 * header is decoded; cells are read from the mapped file on demand.
+	 *
+	 * @param file
+	 *            file written by write
+	 * @return table with the contents of the file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a table file
+	 */
+	public static MappedTable open(Path file) throws IOException {
+		return open(file, false);
+	}
+
+	/**
+	 * Maps file into memory and returns a table over it. Only the header is
+	 * decoded; cells are read from the mapped file on demand.
+	 *
+	 * @param file
+	 *            file written by write
+	 * @param copyOnWrite
+	 *            whether the first update should copy the table into memory
+	 *            (the file is never changed) rather than be rejected
+	 * @return table with the contents of the file
+	 * @throws IOException
+	 *             if the file cannot be read or is not a table file
+	 */
+	public static MappedTable open(Path file, boolean copyOnWrite) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Table file is too large to map: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < 16 + TRAILER_BYTES || buffer.getInt(0) != MAGIC) {
+				throw new IOException("Not a table file: " + file);
+			}
+			return new MappedTable(buffer, copyOnWrite);
+		}
+	}
+
+	/**
+	 * Writes value as an unsigned LEB128 varint: seven bits per byte, low bits
+	 * first, with the high bit set on every byte but the last.
+	 */
+	static void writeVarint(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+}
@@ -0,0 +1,141 @@
+package compression;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Builds a CompressedTable from a complete grid read a row at a time, either
+ * as comma separated values or in the layout written by entireTable (one
+ * character per cell). Each cell is compared with the one before it, a run is
+ * recorded only where the value changes, and the table is built from the runs
+ * with CompressedTable.fromRuns. Only the runs and the current line are held,
+ * so importing takes O(cells) time and O(runs) memory, with no 2-dimensional
+ * array and none of the splitting and merging of filling a table through
+ * updateInfo.
+ *
+ * To read from an InputStream, wrap it in an InputStreamReader.
+ */
+class TableImport {
+	private long[] starts = new long[16]; // offset of the first cell of each run
+	private int[] codes = new int[16]; // code of each run's value
+	private int numRuns;
+	private ValueDictionary<String> dictionary = new ValueDictionary<String>();
+	private String last; // value of the last run
+
+	private int numRows;
+	private int numCols = -1; // set by the first row
+
+	private TableImport() {
+	}
+
+	/**
+	 * Reads a table of comma separated values, one row per line. Values are taken
+	 * as they appear, without trimming or quoting, so they cannot contain commas.
+	 *
+	 * @param in
+	 *            source of the rows
+	 * @return table holding the values read
+	 * @throws IOException
+	 *             if in fails, is empty or has rows of different lengths
+	 */
+	public static CompressedTable<String> readCsv(Reader in) throws IOException {
+		TableImport builder = new TableImport();
+		BufferedReader lines = new BufferedReader(in);
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			long rowStart = builder.startRow();
+			int col = 0;
+			int from = 0;
+			while (true) {
+				int to = line.indexOf(',', from);
+				if (to < 0) {
+					to = line.length();
+				}
+				builder.add(rowStart + col, line, from, to);
+				col++;
+				if (to == line.length()) {
+					break;
+				}
+				from = to + 1;
+			}
+			builder.endRow(col);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads a table in the layout written by entireTable: one row per line and one
+	 * character per cell.
+	 *
+	 * @param in
+	 *            source of the rows
+	 * @return table holding the values read
+	 * @throws IOException
+	 *             if in fails, is empty or has rows of different lengths
+	 */
+	public static CompressedTable<String> readText(Reader in) throws IOException {
+		TableImport builder = new TableImport();
+		BufferedReader lines = new BufferedReader(in);
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			long rowStart = builder.startRow();
+			for (int col = 0; col < line.length(); col++) {
+				builder.add(rowStart + col, line, col, col + 1);
+			}
+			builder.endRow(line.length());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return offset of the first cell of the row about to be read; before the
+	 *         first row is finished its length is unknown, but its offset is 0
+	 */
+	private long startRow() {
+		return (numCols < 0) ? 0 : (long) numRows * numCols;
+	}
+
+	/**
+	 * Records the cell at offset, holding the characters from (inclusive) to to
+	 * (exclusive) of line, starting a run unless it equals the previous cell.
+	 */
+	private void add(long offset, String line, int from, int to) {
+		int length = to - from;
+		if (last != null && last.length() == length && line.regionMatches(from, last, 0, length)) {
+			return;
+		}
+		if (numRuns == starts.length) {
+			starts = Arrays.copyOf(starts, 2 * numRuns);
+			codes = Arrays.copyOf(codes, 2 * numRuns);
+		}
+		starts[numRuns] = offset;
+		codes[numRuns] = dictionary.encode(line.substring(from, to));
+		last = dictionary.decode(codes[numRuns]);
+		numRuns++;
+	}
+
+	/**
+	 * Checks the length of the row just read.
+	 */
+	private void endRow(int cols) throws IOException {
+		if (numCols < 0) {
+			if (cols == 0) {
+				throw new IOException("Row 0 is empty");
+			}
+			numCols = cols;
+		} else if (cols != numCols) {
+			throw new IOException("Row " + numRows + " has " + cols + " cells, expected " + numCols);
+		}
+		numRows++;
+	}
+
+	/**
+	 * @return table holding the runs read
+	 */
+	private CompressedTable<String> build() throws IOException {
+		if (numRuns == 0) {
+			throw new IOException("No rows to read");
+		}
+		return CompressedTable.fromRuns(numRows, numCols, starts, codes, numRuns, dictionary);
+	}
+}
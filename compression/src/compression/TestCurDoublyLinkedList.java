@@ -234,6 +234,117 @@ public class TestCurDoublyLinkedList {
 		assertEquals(47, (int) list.current.item);
 	}
 
+	// remove the head, confirm current moves to its successor
+	@Test
+	public void testRemoveCurrentHead() {
+		// 134 <=> 84 <=> 47
+		list.add(47);
+		list.add(84);
+		list.add(134);
+
+		list.first();
+		list.removeCurrent();
+		assertEquals(84, (int) list.current.item);
+		assertFalse(list.isOff());
+
+		assertEquals(2, list.size());
+		list.last();
+		assertEquals(47, (int) list.current.item);
+		list.back();
+		assertEquals(84, (int) list.current.item);
+		list.back();
+		assertTrue(list.isOffLeft());
+	}
+
+	// remove the tail, confirm current goes off the right end
+	@Test
+	public void testRemoveCurrentTail() {
+		// 134 <=> 84 <=> 47
+		list.add(47);
+		list.add(84);
+		list.add(134);
+
+		list.last();
+		list.removeCurrent();
+		assertNull(list.current);
+		assertTrue(list.isOffRight());
+		assertFalse(list.isOffLeft());
+
+		assertEquals(2, list.size());
+		list.back();
+		assertEquals(84, (int) list.current.item);
+		assertFalse(list.isOff());
+	}
+
+	// remove the only node, confirm current goes off the left end
+	@Test
+	public void testRemoveCurrentOnly() {
+		list.add(47);
+
+		list.first();
+		list.removeCurrent();
+		assertNull(list.current);
+		assertTrue(list.isOffLeft());
+		assertFalse(list.isOffRight());
+		assertTrue(list.isEmpty());
+
+		list.add(84);
+		list.first();
+		assertEquals(84, (int) list.current.item);
+		assertFalse(list.isOff());
+	}
+
+	// list holding the same item object twice, insert after the second copy
+	@Test
+	public void testAddAfterCurrentDuplicates() {
+		// 47 <=> 47 <=> 83
+		Integer shared = 47;
+		list.add(83);
+		list.add(shared);
+		list.add(shared);
+
+		list.first();
+		list.next();
+		list.addAfterCurrent(60);
+		assertEquals(60, (int) list.current.item);
+
+		// 47 <=> 47 <=> 60 <=> 83
+		assertEquals(4, list.size());
+		list.first();
+		assertEquals(47, (int) list.current.item);
+		list.next();
+		assertEquals(47, (int) list.current.item);
+		list.next();
+		assertEquals(60, (int) list.current.item);
+		list.next();
+		assertEquals(83, (int) list.current.item);
+		list.back();
+		assertEquals(60, (int) list.current.item);
+	}
+
+	// list holding the same item object twice, remove the second copy
+	@Test
+	public void testRemoveCurrentDuplicates() {
+		// 47 <=> 47 <=> 83
+		Integer shared = 47;
+		list.add(83);
+		list.add(shared);
+		list.add(shared);
+
+		list.first();
+		DoublyLinkedList<Integer>.Node head = list.current;
+		list.next();
+		list.removeCurrent();
+		assertEquals(83, (int) list.current.item);
+
+		assertEquals(2, list.size());
+		list.first();
+		assertSame(head, list.current);
+		list.last();
+		list.back();
+		assertSame(head, list.current);
+	}
+
 	// position to end, addFirst, confirm where it was added
 	@Test
 	public void testAddFirst() {
@@ -358,4 +469,39 @@ public class TestCurDoublyLinkedList {
 		assertFalse(list.isOffLeft());
 		assertFalse(list.isOffRight());
 	}
+
+	// removed nodes are cleared, and with a pool of one the first is reused by the next add
+	@Test
+	public void testNodePool() {
+		// 1 <=> 2 <=> 3 <=> 4
+		list.setNodePool(1);
+		for (int i = 1; i <= 4; i++) {
+			list.addLast(i);
+		}
+		DoublyLinkedList<Integer>.Node head = list.first;
+		DoublyLinkedList<Integer>.Node third = list.first.next.next;
+
+		assertEquals(1, (int) list.removeFirst());
+		assertEquals(3, (int) list.remove(1));
+		assertNull(head.item);
+		assertNull(third.item);
+		assertNull(third.next);
+		assertNull(third.prev);
+
+		list.addLast(5);
+		assertSame(head, list.last);
+		assertEquals(5, (int) list.last.item);
+		assertNull(head.next);
+		assertEquals("Doubly Linked List: [<- 2 <-> 4 <-> 5 ->] First: 2, Last: 5\nCurrent is 5", list.toString());
+	}
+
+	// build a list and confirm how it prints
+	@Test
+	public void testToString() {
+		assertEquals("Doubly Linked List: []\nCurrent is null", list.toString());
+		list.addLast(1);
+		list.addLast(2);
+		list.addLast(3);
+		assertEquals("Doubly Linked List: [<- 1 <-> 2 <-> 3 ->] First: 1, Last: 3\nCurrent is 3", list.toString());
+	}
 }
@@ -0,0 +1,1062 @@
+package compression;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests checking that every TwoDTable engine ends up with the same
+ * runs as CompressedTable for the same sequence of updates.
+ */
+public class TestTwoDTable {
+	private static final String[] VALUES = { "x", "r", "g", "b" };
+
+	/**
+	 * @return one table of each engine, all rows x cols filled with "x"
+	 */
+	private static List<TwoDTable<String>> engines(int rows, int cols) {
+		return new ArrayList<TwoDTable<String>>(Arrays.asList(new CompressedTable<String>(rows, cols, "x", true),
+				new PackedCompressedTable<String>(rows, cols, "x"), new ArrayRunTable<String>(rows, cols, "x"),
+				new StripedTable<String>(rows, cols, "x", 3), new PersistentTable<String>(rows, cols, "x"),
+				new OffHeapTable<String>(rows, cols, "x"), new NavigableMapTable<String>(rows, cols, "x"),
+				new NavigableMapTable<String>(rows, cols, "x", new ConcurrentSkipListMap<RowOrderedPosn, String>())));
+	}
+
+	/**
+	 * Applies the same random updates to CompressedTable, to each other engine and
+	 * to a plain array, checking runs after every update and cell contents at the
+	 * end.
+	 */
+	@Test
+	public void testRandomUpdatesMatchCompressedTable() {
+		Random rand = new Random(62);
+		for (int trial = 0; trial < 200; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+			List<TwoDTable<String>> tables = engines(rows, cols);
+			String[][] cells = new String[rows][cols];
+			for (String[] row : cells) {
+				Arrays.fill(row, "x");
+			}
+
+			for (int update = 0; update < 100; update++) {
+				int r = rand.nextInt(rows);
+				int c = rand.nextInt(cols);
+				// fresh String so engines must compare with equals, not ==
+				String value = new String(VALUES[rand.nextInt(VALUES.length)]);
+				expected.updateInfo(r, c, value);
+				cells[r][c] = value;
+				for (TwoDTable<String> table : tables) {
+					table.updateInfo(r, c, value);
+					assertEquals(expected.toString(), table.toString(),
+							table.getClass().getSimpleName() + " runs after update " + update + " of trial " + trial);
+				}
+			}
+
+			StringBuilder grid = new StringBuilder();
+			for (String[] row : cells) {
+				for (String cell : row) {
+					grid.append(cell);
+				}
+				grid.append("\n");
+			}
+			assertEquals(grid.toString(), expected.entireTable());
+
+			for (TwoDTable<String> table : tables) {
+				for (int r = 0; r < rows; r++) {
+					for (int c = 0; c < cols; c++) {
+						assertEquals(cells[r][c], table.getInfo(r, c),
+								table.getClass().getSimpleName() + " cell (" + r + "," + c + ")");
+					}
+				}
+				assertEquals(grid.toString(), table.entireTable());
+			}
+		}
+	}
+
+	/**
+	 * Fills random rectangles, some hanging off the table, and checks every
+	 * engine against CompressedTable updated one cell at a time.
+	 */
+	@Test
+	public void testFillRectMatchesCellUpdates() {
+		Random rand = new Random(8);
+		for (int trial = 0; trial < 200; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+			List<TwoDTable<String>> tables = engines(rows, cols);
+			tables.add(new CompressedTable<String>(rows, cols, "x"));
+
+			for (int fill = 0; fill < 20; fill++) {
+				int row0 = rand.nextInt(rows + 1) - 1;
+				int col0 = rand.nextInt(cols + 1) - 1;
+				int row1 = row0 + rand.nextInt(rows + 1);
+				int col1 = col0 + rand.nextInt(cols + 1);
+				String value = new String(VALUES[rand.nextInt(VALUES.length)]);
+				for (int r = Math.max(0, row0); r <= row1; r++) {
+					for (int c = Math.max(0, col0); c <= col1; c++) {
+						expected.updateInfo(r, c, value);
+					}
+				}
+				for (TwoDTable<String> table : tables) {
+					table.fillRect(row0, col0, row1, col1, value);
+					assertEquals(expected.toString(), table.toString(), table.getClass().getSimpleName() + " runs after fill ("
+							+ row0 + "," + col0 + ")-(" + row1 + "," + col1 + ") of trial " + trial);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies random batches, including repeated cells and cells outside the
+	 * table, and checks them against the same updates made one at a time.
+	 */
+	@Test
+	public void testApplyUpdatesMatchesUpdateInfo() {
+		Random rand = new Random(9);
+		for (int trial = 0; trial < 200; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+			List<TwoDTable<String>> tables = Arrays.asList(new CompressedTable<String>(rows, cols, "x"),
+					new CompressedTable<String>(rows, cols, "x", true));
+
+			for (int batch = 0; batch < 10; batch++) {
+				java.util.List<CellUpdate<String>> updates = new java.util.ArrayList<CellUpdate<String>>();
+				int size = rand.nextInt(2 * rows * cols);
+				for (int i = 0; i < size; i++) {
+					CellUpdate<String> update = new CellUpdate<String>(rand.nextInt(rows + 1), rand.nextInt(cols + 1),
+							new String(VALUES[rand.nextInt(VALUES.length)]));
+					updates.add(update);
+					expected.updateInfo(update.getRow(), update.getCol(), update.getValue());
+				}
+				for (TwoDTable<String> table : tables) {
+					table.applyUpdates(updates);
+					assertEquals(expected.toString(), table.toString(), "runs after batch " + batch + " of trial " + trial);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that after random updates, fills and batches every row start in
+	 * CompressedTable is the entry covering column 0 of its row.
+	 */
+	@Test
+	public void testRowStartsCoverColumnZero() {
+		Random rand = new Random(10);
+		for (int trial = 0; trial < 100; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			CompressedTable<String> table = new CompressedTable<String>(rows, cols, "x");
+			for (int op = 0; op < 50; op++) {
+				String value = VALUES[rand.nextInt(VALUES.length)];
+				if (op % 10 == 9) {
+					table.fillRect(rand.nextInt(rows), rand.nextInt(cols), rand.nextInt(rows), rand.nextInt(cols), value);
+				} else {
+					table.updateInfo(rand.nextInt(rows), rand.nextInt(cols), value);
+				}
+
+				for (int r = 0; r < rows; r++) {
+					@SuppressWarnings("unchecked")
+					DoublyLinkedList<Association<RowOrderedPosn, String>>.Node start =
+							(DoublyLinkedList<Association<RowOrderedPosn, String>>.Node) table.rowStarts[r];
+					RowOrderedPosn rowPos = new RowOrderedPosn(r, 0, rows, cols);
+					assertFalse(rowPos.less(start.item.getKey()), "row " + r + " start is after (r,0)");
+					assertTrue(start.next == null || rowPos.less(start.next.item.getKey()),
+							"row " + r + " start is not the last entry before (r,0)");
+					assertEquals(start.item.getValue(), table.getInfo(r, 0));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads random row ranges of random tables through rowRuns, reusing one
+	 * cursor per table, and checks the runs against getInfo.
+	 */
+	@Test
+	public void testRowRunsMatchGetInfo() {
+		Random rand = new Random(11);
+		for (int trial = 0; trial < 100; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			for (TwoDTable<String> table : engines(rows, cols)) {
+				for (int update = 0; update < 30; update++) {
+					table.updateInfo(rand.nextInt(rows), rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+				}
+
+				RunCursor<String> runs = table.rowRuns(0);
+				for (int read = 0; read < 10; read++) {
+					int row0 = rand.nextInt(rows);
+					int row1 = row0 + rand.nextInt(rows - row0);
+					int row = row0;
+					int col = 0;
+					String prior = null;
+					for (RunCursor<String> run : runs.reset(row0, row1)) {
+						assertEquals(row, run.getRow());
+						assertEquals(col, run.getStartCol());
+						assertTrue(run.getLength() > 0);
+						assertFalse(col > 0 && run.getValue().equals(prior), "equal neighbouring runs in a row");
+						for (int c = col; c < col + run.getLength(); c++) {
+							assertEquals(table.getInfo(row, c), run.getValue());
+						}
+						col += run.getLength();
+						prior = run.getValue();
+						if (col == cols) {
+							row++;
+							col = 0;
+						}
+					}
+					assertEquals(row1 + 1, row, "rows covered by rowRuns(" + row0 + ", " + row1 + ")");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads columns through colRuns while the table keeps changing through
+	 * updateInfo, fillRect and applyUpdates, checking the runs against getInfo.
+	 */
+	@Test
+	public void testColRunsMatchGetInfo() {
+		Random rand = new Random(12);
+		for (int trial = 0; trial < 100; trial++) {
+			int rows = 1 + rand.nextInt(8);
+			int cols = 1 + rand.nextInt(8);
+			CompressedTable<String> table = new CompressedTable<String>(rows, cols, "x");
+			for (int round = 0; round < 10; round++) {
+				String value = VALUES[rand.nextInt(VALUES.length)];
+				if (round % 3 == 1) {
+					table.fillRect(rand.nextInt(rows), rand.nextInt(cols), rand.nextInt(rows), rand.nextInt(cols), value);
+				} else if (round % 3 == 2) {
+					table.applyUpdates(Arrays.asList(new CellUpdate<String>(0, 0, value),
+							new CellUpdate<String>(rand.nextInt(rows), rand.nextInt(cols), value)));
+				} else {
+					for (int update = 0; update < 10; update++) {
+						table.updateInfo(rand.nextInt(rows), rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+					}
+				}
+
+				int col = 0;
+				int row = 0;
+				for (ColumnRunCursor<String> run : table.colRuns(0, cols - 1)) {
+					assertEquals(col, run.getCol());
+					assertEquals(row, run.getStartRow());
+					for (int r = row; r < row + run.getLength(); r++) {
+						assertEquals(table.getInfo(r, col), run.getValue(), "cell (" + r + "," + col + ")");
+					}
+					row += run.getLength();
+					if (row == rows) {
+						col++;
+						row = 0;
+					}
+				}
+				assertEquals(cols, col);
+			}
+		}
+	}
+
+	/**
+	 * Writes many separately created copies of a few values and checks that each
+	 * engine's dictionary holds one copy of each.
+	 */
+	@Test
+	public void testDictionarySharesEqualValues() {
+		CompressedTable<String> compressed = new CompressedTable<String>(10, 10, "x");
+		PackedCompressedTable<String> packed = new PackedCompressedTable<String>(10, 10, "x");
+		ArrayRunTable<String> array = new ArrayRunTable<String>(10, 10, "x");
+		List<TwoDTable<String>> tables = Arrays.<TwoDTable<String>>asList(compressed, packed, array);
+		for (TwoDTable<String> table : tables) {
+			for (int r = 0; r < 10; r++) {
+				for (int c = 0; c < 10; c += 2) {
+					table.updateInfo(r, c, new String(VALUES[1 + (r + c) % 3]));
+				}
+			}
+			assertSame(table.getInfo(0, 0), table.getInfo(2, 4));
+			assertSame(table.getInfo(0, 2), table.getInfo(1, 1 + 3));
+		}
+		assertEquals(4, compressed.getDictionary().size());
+		assertEquals(4, packed.getDictionary().size());
+		assertEquals(4, array.getDictionary().size());
+		assertEquals(packed.toString(), compressed.toString());
+		assertTrue(array.getDictionary().estimatedBytesSaved(array.numRuns()) > 0);
+		assertEquals("Dictionary: 1 values, 1 runs, ~0 bytes saved", new ArrayRunTable<String>(2, 2, "x").dictionaryStats());
+	}
+
+	/**
+	 * Overwrites cells with many distinct values and checks that each engine's
+	 * dictionary drops the values no run holds any more, reusing their codes
+	 * without changing the table's contents.
+	 */
+	@Test
+	public void testDictionaryDropsUnusedValues() {
+		CompressedTable<String> compressed = new CompressedTable<String>(4, 5, "x");
+		PackedCompressedTable<String> packed = new PackedCompressedTable<String>(4, 5, "x");
+		ArrayRunTable<String> array = new ArrayRunTable<String>(4, 5, "x");
+		OffHeapTable<String> offHeap = new OffHeapTable<String>(4, 5, "x");
+		List<TwoDTable<String>> tables = Arrays.asList(compressed, packed, array, offHeap);
+		Random rand = new Random(29);
+		for (int update = 0; update < 2000; update++) {
+			int r = rand.nextInt(4);
+			int c = rand.nextInt(5);
+			String value = (update % 3 == 0) ? "x" : "v" + update;
+			for (TwoDTable<String> table : tables) {
+				table.updateInfo(r, c, value);
+			}
+		}
+		for (TwoDTable<String> table : tables) {
+			assertEquals(compressed.entireTable(), table.entireTable());
+			assertEquals(compressed.toString(), table.toString());
+		}
+		// at most twice the runs plus a little slack, however many values were written
+		assertTrue(compressed.getDictionary().size() <= 2 * 20 + 17);
+		assertTrue(packed.getDictionary().size() <= 2 * 20 + 17);
+		assertTrue(array.getDictionary().size() <= 2 * 20 + 17);
+		assertTrue(offHeap.getDictionary().size() <= 2 * 20 + 17);
+		offHeap.close();
+	}
+
+	/**
+	 * Checks that exporting runs to a stream or channel writes the same text as
+	 * toString for every engine, and that a table file written to a channel is
+	 * byte for byte the one written to a file.
+	 */
+	@Test
+	public void testExportMatchesToString() throws IOException {
+		Random rand = new Random(17);
+		List<TwoDTable<String>> tables = engines(12, 9);
+		for (int update = 0; update < 60; update++) {
+			int r = rand.nextInt(12);
+			int c = rand.nextInt(9);
+			String value = VALUES[rand.nextInt(VALUES.length)];
+			for (TwoDTable<String> table : tables) {
+				table.updateInfo(r, c, value);
+			}
+		}
+
+		for (TwoDTable<String> table : tables) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			TableExport.writeRuns(table, out);
+			assertEquals(table.toString(), out.toString("UTF-8"), table.getClass().getSimpleName());
+
+			out.reset();
+			TableExport.writeRuns(table, Channels.newChannel(out));
+			assertEquals(table.toString(), out.toString("UTF-8"), table.getClass().getSimpleName());
+		}
+
+		Path file = Files.createTempFile("table", ".ctb");
+		try {
+			TableFile.write(tables.get(0), file);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			TableFile.write(tables.get(0), Channels.newChannel(out));
+			assertArrayEquals(Files.readAllBytes(file), out.toByteArray());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Runs readers against a ConcurrentCompressedTable while a writer repaints
+	 * rectangles, checking that every cell read holds a value that was written
+	 * and every row read through rowRuns covers the whole row, then checks the
+	 * final table against a CompressedTable given the same writes.
+	 */
+	@Test
+	public void testConcurrentReadsDuringWrites() throws InterruptedException {
+		final int size = 40;
+		final ConcurrentCompressedTable<String> table = new ConcurrentCompressedTable<String>(size, size, "x");
+		final CompressedTable<String> expected = new CompressedTable<String>(size, size, "x");
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final AtomicBoolean done = new AtomicBoolean();
+
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			final Random rand = new Random(i);
+			readers[i] = new Thread(() -> {
+				try {
+					while (!done.get()) {
+						int r = rand.nextInt(size);
+						String value = table.getInfo(r, rand.nextInt(size));
+						assertTrue(value.equals("x") || value.equals("r") || value.equals("g") || value.equals("b"),
+								"read " + value);
+						int cells = 0;
+						for (RunCursor<String> run : table.rowRuns(r)) {
+							cells += run.getLength();
+						}
+						assertEquals(size, cells, "cells in row " + r);
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			});
+			readers[i].start();
+		}
+
+		Random rand = new Random(18);
+		for (int write = 0; write < 2000; write++) {
+			int row0 = rand.nextInt(size);
+			int col0 = rand.nextInt(size);
+			int row1 = row0 + rand.nextInt(8);
+			int col1 = col0 + rand.nextInt(8);
+			String value = new String(VALUES[rand.nextInt(VALUES.length)]);
+			table.fillRect(row0, col0, row1, col1, value);
+			expected.fillRect(row0, col0, row1, col1, value);
+			table.updateInfo(col0, row0, value);
+			expected.updateInfo(col0, row0, value);
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		assertNull(failure.get(), String.valueOf(failure.get()));
+		assertEquals(expected.toString(), table.toString());
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				assertEquals(expected.getInfo(r, c), table.getInfo(r, c));
+			}
+		}
+	}
+
+	/**
+	 * Has several threads update a StripedTable at once, each on its own rows, and
+	 * checks the result against the same updates made to a CompressedTable.
+	 */
+	@Test
+	public void testStripedTableParallelWriters() throws InterruptedException {
+		final int rows = 32;
+		final int cols = 20;
+		final StripedTable<String> table = new StripedTable<String>(rows, cols, "x", 5);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] writers = new Thread[4];
+		for (int i = 0; i < writers.length; i++) {
+			final int first = i;
+			writers[i] = new Thread(() -> {
+				try {
+					Random rand = new Random(first);
+					for (int update = 0; update < 2000; update++) {
+						int r = first + writers.length * rand.nextInt(rows / writers.length);
+						table.updateInfo(r, rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			});
+			writers[i].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		assertNull(failure.get(), String.valueOf(failure.get()));
+
+		CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+		for (int i = 0; i < writers.length; i++) {
+			Random rand = new Random(i);
+			for (int update = 0; update < 2000; update++) {
+				int r = i + writers.length * rand.nextInt(rows / writers.length);
+				expected.updateInfo(r, rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+			}
+		}
+		assertEquals(expected.toString(), table.toString());
+		assertEquals(expected.entireTable(), table.entireTable());
+	}
+
+	/**
+	 * Takes snapshots of a CompressedTable between random updates and checks that
+	 * each still holds the contents the table had when it was taken, including
+	 * while another thread reads it during later updates.
+	 */
+	@Test
+	public void testSnapshotsKeepTheirContents() throws InterruptedException {
+		Random rand = new Random(20);
+		CompressedTable<String> table = new CompressedTable<String>(15, 12, "x");
+		List<PersistentTable<String>> snapshots = new ArrayList<PersistentTable<String>>();
+		List<String> contents = new ArrayList<String>();
+		for (int round = 0; round < 10; round++) {
+			snapshots.add(table.snapshot());
+			contents.add(table.toString());
+			for (int update = 0; update < 30; update++) {
+				table.updateInfo(rand.nextInt(15), rand.nextInt(12), VALUES[rand.nextInt(VALUES.length)]);
+			}
+			table.fillRect(rand.nextInt(15), rand.nextInt(12), rand.nextInt(15), rand.nextInt(12), "g");
+			List<CellUpdate<String>> batch = new ArrayList<CellUpdate<String>>();
+			for (int update = 0; update < 10; update++) {
+				batch.add(new CellUpdate<String>(rand.nextInt(15), rand.nextInt(12), VALUES[rand.nextInt(VALUES.length)]));
+			}
+			table.applyUpdates(batch);
+		}
+
+		final PersistentTable<String> last = table.snapshot();
+		final String expected = table.entireTable();
+		final AtomicReference<String> seen = new AtomicReference<String>();
+		Thread reader = new Thread(() -> seen.set(last.entireTable()));
+		reader.start();
+		for (int update = 0; update < 500; update++) {
+			table.updateInfo(rand.nextInt(15), rand.nextInt(12), VALUES[rand.nextInt(VALUES.length)]);
+		}
+		reader.join();
+		assertEquals(expected, seen.get());
+
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertEquals(contents.get(i), snapshots.get(i).toString(), "snapshot " + i);
+		}
+		assertEquals(table.toString(), table.snapshot().toString());
+		assertThrows(UnsupportedOperationException.class, () -> last.updateInfo(0, 0, "r"));
+	}
+
+	/**
+	 * Checks that a CompressedTable stops keeping its persistent copy in step
+	 * once its snapshots have been collected, and that a later snapshot still
+	 * holds the table's contents.
+	 */
+	@Test
+	public void testSnapshotCopyDroppedWhenUnreachable() {
+		CompressedTable<String> table = new CompressedTable<String>(6, 7, "x");
+		PersistentTable<String> snapshot = table.snapshot();
+		table.updateInfo(1, 2, "a");
+		assertNotNull(table.persistent);
+		assertEquals("x", snapshot.getInfo(1, 2));
+
+		snapshot = null;
+		for (int attempt = 0; attempt < 20 && table.persistent != null; attempt++) {
+			System.gc();
+			table.updateInfo(attempt % 6, 3, VALUES[attempt % VALUES.length]);
+		}
+		assertNull(table.persistent);
+
+		table.fillRect(2, 1, 4, 5, "b");
+		assertEquals(table.toString(), table.snapshot().toString());
+	}
+
+	/**
+	 * Makes random updates to a LoggedTable, compacting now and then, and checks
+	 * that reopening its directory recovers every committed update, that a
+	 * group not yet committed is lost and that a torn frame at the end of the
+	 * log is cut off.
+	 */
+	@Test
+	public void testLoggedTableRecovers() throws IOException {
+		Path dir = Files.createTempDirectory("logged");
+		try {
+			Random rand = new Random(21);
+			CompressedTable<String> expected = new CompressedTable<String>(9, 7, "x");
+			try (LoggedTable table = LoggedTable.open(dir, 9, 7, "x", 4, 300)) {
+				for (int update = 0; update < 200; update++) {
+					int r = rand.nextInt(9);
+					int c = rand.nextInt(7);
+					String value = VALUES[rand.nextInt(VALUES.length)];
+					if (update % 10 == 0) {
+						table.fillRect(r, c, r + 2, c + 3, value);
+						expected.fillRect(r, c, r + 2, c + 3, value);
+					} else {
+						table.updateInfo(r, c, value);
+						expected.updateInfo(r, c, value);
+					}
+				}
+				assertTrue(table.logSize() < 300 + 100, "log was compacted");
+			}
+			LoggedTable table = LoggedTable.open(dir, 1, 1, "?", 4, 300);
+			assertEquals(expected.toString(), table.toString());
+
+			// reopening while table is still open stands in for a crash: a committed
+			// group survives, a pending one does not
+			table.updateInfo(0, 0, "committed");
+			table.commit();
+			expected.updateInfo(0, 0, "committed");
+			table.updateInfo(0, 1, "pending");
+			try (LoggedTable crashed = LoggedTable.open(dir, 1, 1, "?", 4, Long.MAX_VALUE)) {
+				assertEquals(expected.toString(), crashed.toString());
+			}
+			table.close();
+			expected.updateInfo(0, 1, "pending");
+
+			// garbage after the last frame is cut off
+			Files.write(dir.resolve(LoggedTable.LOG), new byte[] { 0, 0, 0, 9, 1, 2, 3 }, StandardOpenOption.APPEND);
+			try (LoggedTable reopened = LoggedTable.open(dir, 1, 1, "?", 4, 300)) {
+				assertEquals(expected.toString(), reopened.toString());
+			}
+		} finally {
+			for (Path file : Files.list(dir).toArray(Path[]::new)) {
+				Files.delete(file);
+			}
+			Files.delete(dir);
+		}
+	}
+
+	/**
+	 * Corrupts a byte in the last frame of a LoggedTable's log and checks that
+	 * reopening it recovers the earlier frames without the corrupt one, cuts the
+	 * log back to the end of the last good frame and goes on logging from there.
+	 */
+	@Test
+	public void testLoggedTableDropsCorruptFrame() throws IOException {
+		Path dir = Files.createTempDirectory("logged");
+		try {
+			CompressedTable<String> expected = new CompressedTable<String>(6, 5, "x");
+			long good;
+			try (LoggedTable table = LoggedTable.open(dir, 6, 5, "x", 100, Long.MAX_VALUE)) {
+				table.fillRect(1, 1, 3, 3, "r");
+				table.updateInfo(5, 4, "g");
+				table.commit();
+				expected.fillRect(1, 1, 3, 3, "r");
+				expected.updateInfo(5, 4, "g");
+				good = table.logSize();
+
+				table.updateInfo(0, 0, "b");
+				table.fillRect(4, 0, 5, 1, "r");
+			}
+			Path log = dir.resolve(LoggedTable.LOG);
+			byte[] bytes = Files.readAllBytes(log);
+			assertTrue(bytes.length > good, "second frame was written");
+			bytes[bytes.length - 2] ^= 0x40;
+			Files.write(log, bytes);
+
+			try (LoggedTable table = LoggedTable.open(dir, 1, 1, "?", 100, Long.MAX_VALUE)) {
+				assertEquals(expected.toString(), table.toString());
+				assertEquals(good, table.logSize());
+				table.updateInfo(2, 2, "b");
+				expected.updateInfo(2, 2, "b");
+			}
+			try (LoggedTable table = LoggedTable.open(dir, 1, 1, "?", 100, Long.MAX_VALUE)) {
+				assertEquals(expected.toString(), table.toString());
+			}
+		} finally {
+			for (Path file : Files.list(dir).toArray(Path[]::new)) {
+				Files.delete(file);
+			}
+			Files.delete(dir);
+		}
+	}
+
+	/**
+	 * Reads the entireTable text of random tables back with TableImport and
+	 * checks the imported table has the same runs and keeps matching under
+	 * further updates.
+	 */
+	@Test
+	public void testImportTextMatchesEntireTable() throws IOException {
+		Random rand = new Random(16);
+		for (int trial = 0; trial < 50; trial++) {
+			int rows = 1 + rand.nextInt(10);
+			int cols = 1 + rand.nextInt(10);
+			CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+			for (int update = 0; update < rows * cols / 2; update++) {
+				expected.updateInfo(rand.nextInt(rows), rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+			}
+
+			CompressedTable<String> table = TableImport.readText(new StringReader(expected.entireTable()));
+			assertEquals(expected.toString(), table.toString(), "runs of trial " + trial);
+			for (int update = 0; update < 20; update++) {
+				int r = rand.nextInt(rows);
+				int c = rand.nextInt(cols);
+				String value = VALUES[rand.nextInt(VALUES.length)];
+				expected.updateInfo(r, c, value);
+				table.updateInfo(r, c, value);
+				assertEquals(expected.toString(), table.toString(), "runs after update " + update);
+			}
+			assertEquals(expected.entireTable(), table.entireTable());
+		}
+	}
+
+	/**
+	 * Checks that CSV import keeps multi-character values, joins equal cells
+	 * across rows and rejects ragged rows.
+	 */
+	@Test
+	public void testImportCsv() throws IOException {
+		CompressedTable<String> table = TableImport.readCsv(new StringReader("red,red,blue\nblue,,\n,,green\n"));
+		CompressedTable<String> expected = new CompressedTable<String>(3, 3, "red");
+		expected.updateInfo(0, 2, "blue");
+		expected.updateInfo(1, 0, "blue");
+		expected.fillRect(1, 1, 2, 1, "");
+		expected.updateInfo(1, 2, "");
+		expected.updateInfo(2, 0, "");
+		expected.updateInfo(2, 2, "green");
+		assertEquals(expected.toString(), table.toString());
+		assertEquals("blue", table.getInfo(1, 0));
+
+		assertThrows(IOException.class, () -> TableImport.readCsv(new StringReader("a,b\nc\n")));
+		assertThrows(IOException.class, () -> TableImport.readText(new StringReader("")));
+	}
+
+	/**
+	 * Writes tables with runs spanning several index blocks to a table file and
+	 * checks that the mapped table has the same runs, cells and rows, whether
+	 * cells are read in order or at random.
+	 */
+	@Test
+	public void testTableFileRoundTrip() throws IOException {
+		Random rand = new Random(14);
+		Path file = Files.createTempFile("table", ".ctb");
+		try {
+			for (int trial = 0; trial < 20; trial++) {
+				int rows = 1 + rand.nextInt(40);
+				int cols = 1 + rand.nextInt(40);
+				CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+				for (int update = 0; update < rows * cols / 2; update++) {
+					expected.updateInfo(rand.nextInt(rows), rand.nextInt(cols), VALUES[rand.nextInt(VALUES.length)]);
+				}
+
+				TableFile.write(expected, file);
+				MappedTable table = TableFile.open(file);
+				assertEquals(expected.toString(), table.toString(), "runs of trial " + trial);
+				assertEquals(expected.entireTable(), table.entireTable(), "rows of trial " + trial);
+				for (int r = 0; r < rows; r++) {
+					for (int c = 0; c < cols; c++) {
+						assertEquals(expected.getInfo(r, c), table.getInfo(r, c), "cell (" + r + "," + c + ")");
+					}
+				}
+				for (int i = 0; i < 200; i++) {
+					int r = rand.nextInt(rows);
+					int c = rand.nextInt(cols);
+					assertEquals(expected.getInfo(r, c), table.getInfo(r, c), "cell (" + r + "," + c + ")");
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Has several threads read random cells of one mapped table at once, each
+	 * checking every value against the table the file was written from (read
+	 * up front, since reading a CompressedTable moves its cursor).
+	 */
+	@Test
+	public void testTableFileConcurrentReads() throws IOException, InterruptedException {
+		final int size = 100;
+		CompressedTable<String> expected = new CompressedTable<String>(size, size, "x");
+		Random rand = new Random(15);
+		for (int update = 0; update < size * size / 2; update++) {
+			expected.updateInfo(rand.nextInt(size), rand.nextInt(size), VALUES[rand.nextInt(VALUES.length)]);
+		}
+		final String[][] cells = new String[size][size];
+		for (int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				cells[r][c] = expected.getInfo(r, c);
+			}
+		}
+		Path file = Files.createTempFile("table", ".ctb");
+		try {
+			TableFile.write(expected, file);
+			final MappedTable table = TableFile.open(file);
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			Thread[] readers = new Thread[4];
+			for (int i = 0; i < readers.length; i++) {
+				final Random reads = new Random(i);
+				readers[i] = new Thread(() -> {
+					try {
+						for (int read = 0; read < 20000; read++) {
+							int r = reads.nextInt(size);
+							int c = reads.nextInt(size);
+							assertEquals(cells[r][c], table.getInfo(r, c), "cell (" + r + "," + c + ")");
+						}
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				});
+				readers[i].start();
+			}
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			assertNull(failure.get(), String.valueOf(failure.get()));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Checks that a copy on write table takes updates without changing its file.
+	 */
+	@Test
+	public void testTableFileCopiesOnWrite() throws IOException {
+		Path file = Files.createTempFile("table", ".ctb");
+		try {
+			CompressedTable<String> expected = new CompressedTable<String>(4, 5, "x");
+			expected.fillRect(1, 1, 2, 3, "a");
+			TableFile.write(expected, file);
+			String original = expected.toString();
+
+			MappedTable table = TableFile.open(file, true);
+			assertFalse(table.isCopied());
+			table.updateInfo(2, 2, "b");
+			table.fillRect(3, 0, 3, 4, "c");
+			expected.updateInfo(2, 2, "b");
+			expected.fillRect(3, 0, 3, 4, "c");
+			assertTrue(table.isCopied());
+			assertEquals(expected.toString(), table.toString());
+			assertEquals(expected.entireTable(), table.entireTable());
+			assertEquals("b", table.getInfo(2, 2));
+
+			assertEquals(original, TableFile.open(file).toString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Checks that a mapped table rejects updates and that open rejects files that
+	 * are not table files.
+	 */
+	@Test
+	public void testTableFileIsReadOnly() throws IOException {
+		Path file = Files.createTempFile("table", ".ctb");
+		try {
+			TableFile.write(new CompressedTable<String>(2, 3, "x"), file);
+			MappedTable table = TableFile.open(file);
+			assertEquals(1, table.numRuns());
+			assertThrows(UnsupportedOperationException.class, () -> table.updateInfo(0, 0, "y"));
+
+			Files.write(file, "xxx\nxxx\n".getBytes());
+			assertThrows(IOException.class, () -> TableFile.open(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Grows an OffHeapTable past its initial buffers and checks that it cannot be
+	 * used once closed.
+	 */
+	@Test
+	public void testOffHeapTableClose() {
+		OffHeapTable<String> table = new OffHeapTable<String>(10, 10, "x");
+		long initial = table.offHeapBytes();
+		for (int cell = 0; cell < 100; cell += 2) {
+			table.updateInfo(cell / 10, cell % 10, "r");
+		}
+		assertEquals(100, table.numRuns());
+		assertTrue(table.offHeapBytes() > initial);
+		assertEquals("r", table.getInfo(9, 8));
+		table.close();
+		assertThrows(IllegalStateException.class, () -> table.getInfo(0, 0));
+		assertThrows(IllegalStateException.class, () -> table.updateInfo(0, 0, "r"));
+	}
+
+	/**
+	 * Checks that CompressedTable's getInfo, and an updateInfo that changes
+	 * nothing, allocate no memory, using the JVM's count of bytes allocated by
+	 * this thread. Both are called before the count is read so that any classes
+	 * they need are already loaded.
+	 */
+	@Test
+	public void testGetInfoAllocatesNothing() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+		long thread = Thread.currentThread().getId();
+		for (CompressedTable<String> table : Arrays.asList(new CompressedTable<String>(40, 30, "x"),
+				new CompressedTable<String>(40, 30, "x", true))) {
+			Random rand = new Random(24);
+			for (int update = 0; update < 300; update++) {
+				table.updateInfo(rand.nextInt(40), rand.nextInt(30), VALUES[rand.nextInt(VALUES.length)]);
+			}
+			String first = table.getInfo(0, 0);
+			table.updateInfo(0, 0, first);
+
+			long start = threads.getThreadAllocatedBytes(thread);
+			long overhead = threads.getThreadAllocatedBytes(thread) - start; // of reading the count itself
+			start = threads.getThreadAllocatedBytes(thread);
+			int length = 0;
+			for (int row = 0; row < 40; row++) {
+				for (int col = 0; col < 30; col++) {
+					length += table.getInfo(row, col).length();
+				}
+			}
+			table.updateInfo(0, 0, first);
+			assertEquals(overhead, threads.getThreadAllocatedBytes(thread) - start);
+			assertEquals(1200, length);
+		}
+	}
+
+	/**
+	 * Checks that RowOrderedPosn's compareTo agrees with less and equals, that
+	 * equal positions hash alike so they find each other in a HashMap, and that
+	 * the positions of a wide table do not share hashes.
+	 */
+	@Test
+	public void testRowOrderedPosnOrderAndHash() {
+		Map<RowOrderedPosn, Long> offsets = new HashMap<RowOrderedPosn, Long>();
+		for (int row = 0; row < 4; row++) {
+			for (int col = 0; col < 5; col++) {
+				RowOrderedPosn pos = new RowOrderedPosn(row, col, 4, 5);
+				offsets.put(pos, pos.offset());
+				for (int otherRow = 0; otherRow < 4; otherRow++) {
+					for (int otherCol = 0; otherCol < 5; otherCol++) {
+						RowOrderedPosn other = new RowOrderedPosn(otherRow, otherCol, 4, 5);
+						int order = pos.compareTo(other);
+						assertEquals(pos.less(other), order < 0);
+						assertEquals(pos.equals(other), order == 0);
+						assertEquals(Long.signum(pos.offset() - other.offset()), Integer.signum(order));
+					}
+				}
+			}
+		}
+		assertEquals(20, offsets.size());
+		assertEquals(Long.valueOf(13), offsets.get(new RowOrderedPosn(2, 3, 4, 5)));
+		assertEquals(new RowOrderedPosn(2, 3, 4, 5).hashCode(), new RowOrderedPosn(2, 3, 9, 9).hashCode());
+
+		java.util.Set<Integer> hashes = new java.util.HashSet<Integer>();
+		for (int row = 0; row < 100; row++) {
+			for (int col = 0; col < 400; col++) {
+				hashes.add(new RowOrderedPosn(row, col, 100, 400).hashCode());
+			}
+		}
+		assertEquals(100 * 400, hashes.size());
+	}
+
+	/**
+	 * Drives a PackedCompressedTable and a CompressedTable through the same long
+	 * sequence of updates, rectangles and lookups on a larger table than the
+	 * engine tests use. Cells are chosen by a random walk that turns back now and
+	 * then, so the packed table's cursor is walked both ways from runs that
+	 * updates have just split, merged or unlinked. Runs, run counts and looked up
+	 * values are checked after every step.
+	 */
+	@Test
+	public void testPackedCompressedTableMatchesCompressedTable() {
+		Random rand = new Random(4);
+		for (int trial = 0; trial < 20; trial++) {
+			int rows = 1 + rand.nextInt(30);
+			int cols = 1 + rand.nextInt(40);
+			CompressedTable<String> expected = new CompressedTable<String>(rows, cols, "x");
+			PackedCompressedTable<String> packed = new PackedCompressedTable<String>(rows, cols, "x");
+			long cells = (long) rows * cols;
+			long pos = 0;
+			int step = 1;
+			for (int op = 0; op < 1500; op++) {
+				if (rand.nextInt(20) == 0) {
+					step = -step;
+				}
+				pos = Math.floorMod(pos + step * (1 + rand.nextInt(5)), cells);
+				int r = (int) (pos / cols);
+				int c = (int) (pos % cols);
+				String value = new String(VALUES[rand.nextInt(VALUES.length)]);
+				int kind = rand.nextInt(10);
+				if (kind < 5) {
+					expected.updateInfo(r, c, value);
+					packed.updateInfo(r, c, value);
+				} else if (kind < 7) {
+					int r1 = r + rand.nextInt(3);
+					int c1 = c + rand.nextInt(6);
+					expected.fillRect(r, c, r1, c1, value);
+					packed.fillRect(r, c, r1, c1, value);
+				} else {
+					assertEquals(expected.getInfo(r, c), packed.getInfo(r, c), "cell (" + r + "," + c + ")");
+					continue;
+				}
+				assertEquals(expected.toString(), packed.toString(), "runs after step " + op + " of trial " + trial);
+				assertEquals(expected.tableInfo.size(), packed.numRuns(), "runs after step " + op);
+			}
+			assertEquals(expected.entireTable(), packed.entireTable());
+		}
+	}
+
+	/**
+	 * Makes random puts and removes to a SkipListIndex and checks every floor
+	 * against a linear scan of the keys put so far. The index is emptied by
+	 * removes (dropping its levels back to one) and by clear partway through,
+	 * then built up again, and keys are put again to replace their values.
+	 */
+	@Test
+	public void testSkipListIndexMatchesLinearScan() {
+		Random rand = new Random(3);
+		SkipListIndex<String> index = new SkipListIndex<String>();
+		Map<Long, String> expected = new HashMap<Long, String>();
+		for (int round = 0; round < 4; round++) {
+			for (int op = 0; op < 2000; op++) {
+				long key = rand.nextInt(500) - 100;
+				if (rand.nextInt(3) == 0) {
+					index.remove(key);
+					expected.remove(key);
+				} else {
+					String value = "v" + op;
+					index.put(key, value);
+					expected.put(key, value);
+				}
+				assertEquals(expected.size(), index.size());
+				long probe = rand.nextInt(520) - 110;
+				assertEquals(linearFloor(expected, probe), index.floor(probe), "floor(" + probe + ")");
+			}
+			for (long key = -110; key < 410; key++) {
+				assertEquals(linearFloor(expected, key), index.floor(key), "floor(" + key + ")");
+			}
+			if (round % 2 == 0) {
+				for (Long key : new ArrayList<Long>(expected.keySet())) {
+					index.remove(key);
+				}
+			} else {
+				index.clear();
+			}
+			expected.clear();
+			assertEquals(0, index.size());
+			assertNull(index.floor(Long.MAX_VALUE));
+			index.remove(7);
+			assertEquals(0, index.size());
+		}
+	}
+
+	/**
+	 * @return value under the largest key of values that is <= key, found by
+	 *         looking at every key, or null if there is none
+	 */
+	private static String linearFloor(Map<Long, String> values, long key) {
+		Long best = null;
+		for (Long candidate : values.keySet()) {
+			if (candidate <= key && (best == null || candidate > best)) {
+				best = candidate;
+			}
+		}
+		return (best == null) ? null : values.get(best);
+	}
+
+	/**
+	 * Checks the README example: setting a cell and setting it back leaves a
+	 * single run.
+	 */
+	@Test
+	public void testUpdateAndRevert() {
+		for (TwoDTable<String> table : engines(3, 4)) {
+			table.updateInfo(0, 1, "r");
+			assertEquals("CurDoublyLinkedList:\n<Association: Position: (0,0)=x>\n"
+					+ "<Association: Position: (0,1)=r>\n<Association: Position: (0,2)=x>\n", table.toString());
+			table.updateInfo(0, 1, "x");
+			assertEquals("CurDoublyLinkedList:\n<Association: Position: (0,0)=x>\n", table.toString());
+		}
+	}
+
+	/**
+	 * Checks updates to the last cell, which has no successor to preserve.
+	 */
+	@Test
+	public void testUpdateLastCell() {
+		for (TwoDTable<String> table : engines(2, 2)) {
+			table.updateInfo(1, 1, "g");
+			assertEquals("CurDoublyLinkedList:\n<Association: Position: (0,0)=x>\n"
+					+ "<Association: Position: (1,1)=g>\n", table.toString());
+			assertEquals("xx\nxg\n", table.entireTable());
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package compression;
 
+import java.io.IOException;
+
 /**
  * TwoDTable.java Interface representing a 2-dimensional table
  *
@@ -24,6 +26,47 @@ interface TwoDTable<ValueType> {
 	 */
 	public void updateInfo(int row, int col, ValueType newInfo);
 
+	/**
+	 * Applies a batch of updates. The result is the same as calling updateInfo
+	 * for each update in order, so a later update to a cell wins over an earlier
+	 * one.
+	 * 
+	 * @param updates
+	 *            updates to apply
+	 */
+	public default void applyUpdates(Iterable<CellUpdate<ValueType>> updates) {
+		for (CellUpdate<ValueType> update : updates) {
+			updateInfo(update.getRow(), update.getCol(), update.getValue());
+		}
+	}
+
+	/**
+	 * Sets every cell in the rectangle from (row0, col0) to (row1, col1),
+	 * inclusive, to newInfo. Parts of the rectangle outside the table are ignored,
+	 * as with updateInfo.
+	 * 
+	 * @post: each cell (r,c) with row0 <= r <= row1 and col0 <= c <= col1 holds
+	 *        newInfo
+	 * 
+	 * @param row0
+	 *            top row of rectangle
+	 * @param col0
+	 *            left column of rectangle
+	 * @param row1
+	 *            bottom row of rectangle
+	 * @param col1
+	 *            right column of rectangle
+	 * @param newInfo
+	 *            new value to place in the rectangle
+	 */
+	public default void fillRect(int row0, int col0, int row1, int col1, ValueType newInfo) {
+		for (int r = row0; r <= row1; r++) {
+			for (int c = col0; c <= col1; c++) {
+				updateInfo(r, c, newInfo);
+			}
+		}
+	}
+
 	/**
 	 * Returns contents of specified cell
 	 * 
@@ -38,8 +81,51 @@ interface TwoDTable<ValueType> {
 	public ValueType getInfo(int row, int col);
 
 	/**
-	 * @return a string representation of the entire table
+	 * Returns a cursor over the runs of rows row0 through row1, inclusive, read
+	 * straight from the table's runs. Rows outside the table are ignored.
+	 * 
+	 * @param row0
+	 *            first row to read
+	 * @param row1
+	 *            last row to read
+	 * @return cursor over the runs of those rows, reusable through reset
+	 */
+	public RunCursor<ValueType> rowRuns(int row0, int row1);
+
+	/**
+	 * Returns a cursor over the runs of a single row.
+	 * 
+	 * @param row
+	 *            row to read
+	 * @return cursor over the runs of the row, reusable through reset
+	 */
+	public default RunCursor<ValueType> rowRuns(int row) {
+		return rowRuns(row, row);
+	}
+
+	/**
+	 * @return a string representation of the entire table, built by
+	 *         entireTable(Appendable)
+	 */
+	public default String entireTable() {
+		StringBuilder ans = new StringBuilder();
+		try {
+			entireTable(ans);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // StringBuilder does not throw
+		}
+		return ans.toString();
+	}
+
+	/**
+	 * Writes the same representation as entireTable() to out, one row per line,
+	 * without building it in memory first.
+	 * 
+	 * @param out
+	 *            destination for the table
+	 * @throws IOException
+	 *             if out fails
 	 */
-	public String entireTable();
+	public void entireTable(Appendable out) throws IOException;
 
 }
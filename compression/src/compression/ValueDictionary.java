@@ -0,0 +1,143 @@
+package compression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Dictionary assigning each distinct value stored in a table a small int code.
+ * Tables store codes (or the dictionary's single copy of each value) instead
+ * of whatever instance was passed in, so equal values are shared and can be
+ * compared as ints or by identity.
+ *
+ * The dictionary does not count how many runs use each value, so a value
+ * stays in it after the last run holding it is overwritten. Tables drop
+ * those values by calling retain with the codes their runs still use once
+ * isStale reports that the dictionary has grown well past the number of
+ * runs; the dropped codes are then reused for new values. Sweeping only then
+ * keeps the unused values to about the number of runs while costing O(1)
+ * per new value on average.
+ *
+ * @param <ValueType> type of value stored in the table
+ */
+class ValueDictionary<ValueType> {
+	private static final int STRING_OVERHEAD = 40; // bytes of a String and its array apart from the characters
+	private static final int OBJECT_BYTES = 16; // assumed size of any other value
+	private static final int STALE_SLACK = 16; // values allowed beyond twice the runs before sweeping
+
+	private HashMap<ValueType, Integer> codes = new HashMap<ValueType, Integer>();
+	private ArrayList<ValueType> values = new ArrayList<ValueType>(); // value of each code, null if free
+	private ArrayDeque<Integer> freeCodes = new ArrayDeque<Integer>(); // codes dropped by retain
+
+	/**
+	 * @pre value is non-null
+	 * @param value
+	 *            value to encode
+	 * @return code of value, adding it to the dictionary if it is new
+	 */
+	public int encode(ValueType value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			if (freeCodes.isEmpty()) {
+				code = values.size();
+				values.add(value);
+			} else {
+				code = freeCodes.pop();
+				values.set(code, value);
+			}
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * @pre value is non-null
+	 * @param value
+	 *            value to look up
+	 * @return the dictionary's copy of a value equal to value, adding value if it
+	 *         is new
+	 */
+	public ValueType intern(ValueType value) {
+		return decode(encode(value));
+	}
+
+	/**
+	 * @pre code was returned by encode and not dropped by retain since
+	 * @param code
+	 *            code to decode
+	 * @return the dictionary's copy of the value with that code
+	 */
+	public ValueType decode(int code) {
+		return values.get(code);
+	}
+
+	/**
+	 * @return number of distinct values in the dictionary
+	 */
+	public int size() {
+		return codes.size();
+	}
+
+	/**
+	 * @param runs
+	 *            number of runs in the table
+	 * @return whether the dictionary holds more than twice as many values as the
+	 *         table has runs, so that at least half of them are unused
+	 */
+	public boolean isStale(long runs) {
+		return codes.size() > 2 * runs + STALE_SLACK;
+	}
+
+	/**
+	 * Drops every value whose code is not in used, freeing its code for reuse.
+	 *
+	 * @param used
+	 *            codes of the values the table still holds
+	 */
+	public void retain(BitSet used) {
+		for (int code = 0; code < values.size(); code++) {
+			ValueType value = values.get(code);
+			if (value != null && !used.get(code)) {
+				codes.remove(value);
+				values.set(code, null);
+				freeCodes.push(code);
+			}
+		}
+	}
+
+	/**
+	 * Estimates the memory saved by sharing values between runs, assuming each of
+	 * runs runs would otherwise hold its own copy of its value (as happens when
+	 * values are parsed from input). Strings are counted as 40 bytes plus their
+	 * length and other values as 16 bytes, averaged over the dictionary.
+	 * 
+	 * @param runs
+	 *            number of runs in the table
+	 * @return estimated bytes saved
+	 */
+	public long estimatedBytesSaved(long runs) {
+		if (codes.isEmpty() || runs <= codes.size()) {
+			return 0;
+		}
+		long total = 0;
+		for (ValueType value : codes.keySet()) {
+			if (value instanceof CharSequence) {
+				total += STRING_OVERHEAD + ((CharSequence) value).length();
+			} else {
+				total += OBJECT_BYTES;
+			}
+		}
+		return (runs - codes.size()) * total / codes.size();
+	}
+
+	/**
+	 * @param runs
+	 *            number of runs in the table
+	 * @return description of the dictionary and the memory it saves
+	 */
+	public String stats(long runs) {
+		return "Dictionary: " + size() + " values, " + runs + " runs, ~" + estimatedBytesSaved(runs)
+				+ " bytes saved";
+	}
+}